@@ -0,0 +1,70 @@
+package com.iftm.client.benchmarks;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.entities.Client;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Conversões entidade <-> DTO e o equals/hashCode da entidade,
+ * chamados em toda listagem e em toda coleção de clientes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ClientDTOBenchmark {
+
+	private Client client;
+	private Client sameClient;
+	private Client otherClient;
+	private ClientDTO dto;
+
+	@Setup
+	public void setup() {
+		Instant birthDate = Instant.parse("1949-05-05T07:00:00Z");
+		client = new Client(5L, "Gilberto Gil", "10419344882", 2500.0, birthDate, 4);
+		sameClient = new Client(5L, "Gilberto Gil", "10419344882", 2500.0, birthDate, 4);
+		otherClient = new Client(6L, "Djamila Ribeiro", "10619244884", 4500.0, birthDate, 1);
+		dto = new ClientDTO(client);
+	}
+
+	@Benchmark
+	public ClientDTO newClientDTO() {
+		return new ClientDTO(client);
+	}
+
+	@Benchmark
+	public Client toEntity() {
+		return dto.toEntity();
+	}
+
+	@Benchmark
+	public int clientHashCode() {
+		return client.hashCode();
+	}
+
+	@Benchmark
+	public boolean clientEqualsSame() {
+		return client.equals(sameClient);
+	}
+
+	@Benchmark
+	public boolean clientEqualsOther() {
+		return client.equals(otherClient);
+	}
+
+}
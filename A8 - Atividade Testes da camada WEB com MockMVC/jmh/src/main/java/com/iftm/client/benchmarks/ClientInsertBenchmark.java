@@ -0,0 +1,70 @@
+package com.iftm.client.benchmarks;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.services.ClientService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Inserção de "size" clientes: um insert por chamada (uma transação cada)
+ * contra o insertAll em lote (JDBC batch + ids do sequence pooled-lo)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientInsertBenchmark {
+
+	@Param({ "100", "1000" })
+	public int size;
+
+	private ConfigurableApplicationContext context;
+	private ClientService service;
+	private List<ClientDTO> clients;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = SeededApplication.start(0);
+		service = context.getBean(ClientService.class);
+		clients = SeededApplication.clients(size, new Random(7));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<ClientDTO> insertOneByOne() {
+		List<ClientDTO> inserted = new ArrayList<>(clients.size());
+		for (ClientDTO dto : clients) {
+			inserted.add(service.insert(dto));
+		}
+		return inserted;
+	}
+
+	@Benchmark
+	public List<Long> insertAll() {
+		return service.insertAll(clients);
+	}
+
+}
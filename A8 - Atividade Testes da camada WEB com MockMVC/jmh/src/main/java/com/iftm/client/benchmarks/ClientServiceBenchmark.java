@@ -0,0 +1,108 @@
+package com.iftm.client.benchmarks;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.ClientService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Métodos de leitura do ClientService contra o H2 em memória com "rows"
+ * clientes. Os pares *Entity/*Projection e *Trigram/*Like comparam a
+ * leitura por entidades com a projeção em DTO e a busca de cpf pelo índice
+ * de trigramas com o LIKE '%x%' puro
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientServiceBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int rows;
+
+	private ConfigurableApplicationContext context;
+	private ClientService service;
+	private ClientRepository repository;
+	private PageRequest firstPage;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = SeededApplication.start(rows);
+		service = context.getBean(ClientService.class);
+		repository = context.getBean(ClientRepository.class);
+		firstPage = PageRequest.of(0, 12, Direction.ASC, "name");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Page<ClientDTO> findAllPaged() {
+		return service.findAllPaged(firstPage);
+	}
+
+	@Benchmark
+	public Object findAllSliced() {
+		return service.findAllSliced(firstPage);
+	}
+
+	@Benchmark
+	public Page<ClientDTO> findByIncomeGreaterThan() {
+		return service.findByIncomeGreaterThan(firstPage, 15000.0);
+	}
+
+	/* Com o cache de findById as leituras repetidas não chegam ao banco */
+	@Benchmark
+	public ClientDTO findByIdCached() {
+		return service.findById(ThreadLocalRandom.current().nextLong(1, 13));
+	}
+
+	@Benchmark
+	public Object findByIdUncached() {
+		return repository.findDTOById(ThreadLocalRandom.current().nextLong(1, 13));
+	}
+
+	@Benchmark
+	public Page<ClientDTO> findAllEntity() {
+		return repository.findAll(firstPage).map(ClientDTO::new);
+	}
+
+	@Benchmark
+	public Page<ClientDTO> findAllProjection() {
+		return repository.findAllDTO(firstPage);
+	}
+
+	@Benchmark
+	public Page<ClientDTO> findByCpfTrigram() {
+		return service.findByCpfContaining(firstPage, "19344");
+	}
+
+	@Benchmark
+	public Page<ClientDTO> findByCpfLike() {
+		return repository.findDTOByCpfLike("%19344%", firstPage);
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.iftm.client.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iftm.client.dto.ClientDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Serialização de Page<ClientDTO> com um ObjectMapper configurado como o do
+ * Spring MVC (datas ISO-8601), que é o corpo de todas as listagens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PageSerializationBenchmark {
+
+	@Param({ "12", "100", "1000" })
+	public int linesPerPage;
+
+	private ObjectMapper objectMapper;
+	private Page<ClientDTO> page;
+
+	@Setup
+	public void setup() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		List<ClientDTO> content = new ArrayList<>(linesPerPage);
+		for (int i = 0; i < linesPerPage; i++) {
+			content.add(new ClientDTO((long) i, "Cliente " + i, String.format("%011d", i), 1000.0 + i,
+					Instant.parse("1996-12-23T07:00:00Z"), i % 4, 0L));
+		}
+		page = new PageImpl<>(content, PageRequest.of(0, linesPerPage), linesPerPage * 10L);
+	}
+
+	@Benchmark
+	public byte[] serializePage() throws Exception {
+		return objectMapper.writeValueAsBytes(page);
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.iftm.client.benchmarks;
+
+import com.iftm.client.DsclientApplication;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.services.ClientService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Sobe a aplicação sem servidor web, com o H2 em memória, e insere "rows"
+ * clientes gerados (além dos 12 do import.sql). A semente é fixa para que
+ * todas as execuções meçam os mesmos dados.
+ * Acima de IN_MEMORY_ROWS o banco em memória não cabe num heap comum (um
+ * milhão de clientes são uns dez milhões de linhas de trigramas, cerca de
+ * 5 GB), então ele é criado do zero num arquivo em target/benchmark-db
+ */
+final class SeededApplication {
+
+	private static final int SEED_CHUNK = 50_000;
+	private static final int IN_MEMORY_ROWS = 100_000;
+
+	private SeededApplication() {
+	}
+
+	static ConfigurableApplicationContext start(int rows) {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(DsclientApplication.class)
+				.web(WebApplicationType.NONE)
+				.run("--spring.jpa.show-sql=false", "--logging.level.root=WARN",
+						"--spring.jpa.hibernate.ddl-auto=create",
+						"--spring.datasource.url=" + url(rows));
+		ClientService service = context.getBean(ClientService.class);
+		Random random = new Random(42);
+		// em blocos, para não manter um milhão de DTOs no heap junto com o banco
+		for (int inserted = 0; inserted < rows; inserted += SEED_CHUNK) {
+			service.insertAll(clients(Math.min(SEED_CHUNK, rows - inserted), random));
+		}
+		return context;
+	}
+
+	private static String url(int rows) {
+		if (rows <= IN_MEMORY_ROWS) {
+			return "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1";
+		}
+		Path directory = Paths.get("target", "benchmark-db").toAbsolutePath();
+		String name = "rows-" + rows;
+		try {
+			Files.createDirectories(directory);
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + ".*")) {
+				for (Path file : files) {
+					Files.delete(file);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return "jdbc:h2:file:" + directory.resolve(name) + ";DB_CLOSE_DELAY=-1";
+	}
+
+	static List<ClientDTO> clients(int rows, Random random) {
+		List<ClientDTO> clients = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			clients.add(new ClientDTO(null, "Cliente " + i, String.format("%011d", random.nextInt(1_000_000_000)),
+					Math.round(random.nextDouble() * 20000.0) / 1.0, Instant.ofEpochSecond(random.nextInt(1_500_000_000)),
+					random.nextInt(5)));
+		}
+		return clients;
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.iftm.client;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+
+/*
+ * O Spring Boot 2.4 não executa schema.sql/data.sql para R2DBC, então a carga
+ * inicial (os mesmos clientes do import.sql da versão servlet) é feita aqui
+ */
+@Configuration
+public class DatabaseConfig {
+
+	@Bean
+	public ConnectionFactoryInitializer initializer(ConnectionFactory connectionFactory) {
+		ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
+		initializer.setConnectionFactory(connectionFactory);
+		initializer.setDatabasePopulator(new ResourceDatabasePopulator(
+				new ClassPathResource("schema.sql"), new ClassPathResource("data.sql")));
+		return initializer;
+	}
+
+}
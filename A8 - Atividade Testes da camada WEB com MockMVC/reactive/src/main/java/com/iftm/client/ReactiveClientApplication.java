@@ -0,0 +1,13 @@
+package com.iftm.client;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ReactiveClientApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveClientApplication.class, args);
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.iftm.client.repositories;
+
+import com.iftm.client.entities.Client;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Versão R2DBC das consultas do ClientRepository da API servlet.
+ * As listagens paginadas usam o par findXxx(Pageable) + countXxx, que o
+ * serviço combina num Page com o mesmo JSON da versão servlet.
+ */
+@Repository
+public interface ClientRepository extends ReactiveCrudRepository<Client, Long> {
+
+    Flux<Client> findAllBy(Pageable pageable);
+
+    Flux<Client> findAllBy(Sort sort);
+
+    Flux<Client> findByIncomeGreaterThan(Double income, Pageable pageable);
+
+    Flux<Client> findByIncomeGreaterThan(Double income, Sort sort);
+
+    Mono<Long> countByIncomeGreaterThan(Double income);
+
+    Flux<Client> findByCpfContaining(String cpf, Pageable pageable);
+
+    Flux<Client> findByCpfContaining(String cpf, Sort sort);
+
+    Mono<Long> countByCpfContaining(String cpf);
+
+    Flux<Client> findByIncomeGreaterThanAndCpfContaining(Double income, String cpf, Sort sort);
+}
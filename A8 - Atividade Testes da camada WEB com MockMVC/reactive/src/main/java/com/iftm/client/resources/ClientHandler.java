@@ -0,0 +1,140 @@
+package com.iftm.client.resources;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.resources.exceptions.StandardError;
+import com.iftm.client.services.ClientService;
+import com.iftm.client.services.ClientSort;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/*
+ * Mesmo contrato de /clients do ClientResource (parâmetros, padrões e
+ * corpos de resposta), atendido sem bloquear threads. Os handlers que
+ * validam parâmetros ficam dentro de Mono.defer: o onError do ClientRouter
+ * só trata erros do Mono, não exceções lançadas ao montá-lo.
+ */
+@Component
+public class ClientHandler {
+
+	@Autowired
+	private ClientService service;
+
+	public Mono<ServerResponse> findAll(ServerRequest request) {
+		return Mono.defer(() -> ServerResponse.ok().body(service.findAllPaged(pageRequest(request)), ClientDTO.class));
+	}
+
+	public Mono<ServerResponse> findById(ServerRequest request) {
+		return service.findById(id(request))
+				.flatMap(dto -> ServerResponse.ok().bodyValue(dto));
+	}
+
+	public Mono<ServerResponse> insert(ServerRequest request) {
+		return request.bodyToMono(ClientDTO.class)
+				.flatMap(service::insert)
+				.flatMap(dto -> ServerResponse
+						.created(request.uriBuilder().path("/{id}").build(dto.getId()))
+						.bodyValue(dto));
+	}
+
+	public Mono<ServerResponse> update(ServerRequest request) {
+		return request.bodyToMono(ClientDTO.class)
+				.flatMap(dto -> service.update(id(request), dto))
+				.flatMap(dto -> ServerResponse.ok().bodyValue(dto));
+	}
+
+	public Mono<ServerResponse> delete(ServerRequest request) {
+		return service.delete(id(request))
+				.then(ServerResponse.noContent().build());
+	}
+
+	public Mono<ServerResponse> findByIncomeGreaterThan(ServerRequest request) {
+		Double income = Double.valueOf(request.queryParam("income").orElse("0"));
+		return Mono.defer(() -> ServerResponse.ok()
+				.body(service.findByIncomeGreaterThan(pageRequest(request), income), ClientDTO.class));
+	}
+
+	public Mono<ServerResponse> findByCpfLike(ServerRequest request) {
+		String cpf = request.queryParam("cpf").orElse("");
+		return Mono.defer(() -> ServerResponse.ok()
+				.body(service.findByCpfContaining(pageRequest(request), cpf), ClientDTO.class));
+	}
+
+	/*
+	 * NDJSON em streaming: cada cliente é escrito assim que chega do banco e
+	 * a leitura só avança conforme o cliente HTTP consome a resposta
+	 */
+	public Mono<ServerResponse> export(ServerRequest request) {
+		return Mono.defer(() -> {
+			Double income = request.queryParam("income").map(Double::valueOf).orElse(null);
+			String cpf = request.queryParam("cpf").orElse(null);
+			String format = request.queryParam("format").orElse("ndjson");
+			Flux<ClientDTO> clients = service.export(income, cpf);
+			if (format.equalsIgnoreCase("ndjson")) {
+				return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(clients, ClientDTO.class);
+			}
+			if (format.equalsIgnoreCase("csv")) {
+				Flux<String> lines = Flux.concat(
+						Flux.just("id,name,cpf,income,birthDate,children\n"),
+						clients.map(ClientHandler::csvLine));
+				return ServerResponse.ok().contentType(new MediaType("text", "csv")).body(lines, String.class);
+			}
+			return error(request, HttpStatus.BAD_REQUEST, "Invalid parameter", "Invalid export format: " + format);
+		});
+	}
+
+	public Mono<ServerResponse> notFound(Throwable e, ServerRequest request) {
+		return error(request, HttpStatus.NOT_FOUND, "Resource not found", e.getMessage());
+	}
+
+	public Mono<ServerResponse> invalidParameter(Throwable e, ServerRequest request) {
+		return error(request, HttpStatus.BAD_REQUEST, "Invalid parameter", e.getMessage());
+	}
+
+	private static Mono<ServerResponse> error(ServerRequest request, HttpStatus status, String error, String message) {
+		StandardError err = new StandardError();
+		err.setTimestamp(Instant.now());
+		err.setStatus(status.value());
+		err.setError(error);
+		err.setMessage(message);
+		err.setPath(request.path());
+		return ServerResponse.status(status).bodyValue(err);
+	}
+
+	private static Long id(ServerRequest request) {
+		return Long.valueOf(request.pathVariable("id"));
+	}
+
+	private static PageRequest pageRequest(ServerRequest request) {
+		int page = Integer.parseInt(request.queryParam("page").orElse("0"));
+		int linesPerPage = Integer.parseInt(request.queryParam("linesPerPage").orElse("12"));
+		String direction = request.queryParam("direction").orElse("ASC");
+		String orderBy = request.queryParam("orderBy").orElse("name");
+		return ClientSort.pageRequest(page, linesPerPage, direction, orderBy);
+	}
+
+	private static String csvLine(ClientDTO dto) {
+		return csv(dto.getId()) + "," + csv(dto.getName()) + "," + csv(dto.getCpf()) + ","
+				+ csv(dto.getIncome()) + "," + csv(dto.getBirthDate()) + "," + csv(dto.getChildren()) + "\n";
+	}
+
+	private static String csv(Object value) {
+		if (value == null) {
+			return "";
+		}
+		String text = value.toString();
+		if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+			return "\"" + text.replace("\"", "\"\"") + "\"";
+		}
+		return text;
+	}
+
+}
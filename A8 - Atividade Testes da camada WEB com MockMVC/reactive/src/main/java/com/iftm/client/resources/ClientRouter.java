@@ -0,0 +1,33 @@
+package com.iftm.client.resources;
+
+import com.iftm.client.services.exceptions.InvalidParameterException;
+import com.iftm.client.services.exceptions.ResourceNotFoundException;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+@Configuration
+public class ClientRouter {
+
+	@Bean
+	public RouterFunction<ServerResponse> clientRoutes(ClientHandler handler) {
+		return RouterFunctions.route()
+				.path("/clients", builder -> builder
+						.GET("/incomeGreaterThan", handler::findByIncomeGreaterThan)
+						.GET("/cpf/", handler::findByCpfLike)
+						.GET("/export", handler::export)
+						.GET("/{id}", handler::findById)
+						.PUT("/{id}", handler::update)
+						.DELETE("/{id}", handler::delete)
+						.GET("", handler::findAll)
+						.GET("/", handler::findAll)
+						.POST("", handler::insert)
+						.POST("/", handler::insert))
+				.onError(ResourceNotFoundException.class, handler::notFound)
+				.onError(InvalidParameterException.class, handler::invalidParameter)
+				.build();
+	}
+
+}
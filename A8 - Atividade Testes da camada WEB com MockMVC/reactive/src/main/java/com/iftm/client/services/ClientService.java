@@ -0,0 +1,118 @@
+package com.iftm.client.services;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.entities.Client;
+import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.exceptions.InvalidParameterException;
+import com.iftm.client.services.exceptions.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Service
+public class ClientService {
+
+	@Autowired
+	private ClientRepository repository;
+
+	public Mono<Page<ClientDTO>> findAllPaged(PageRequest pageRequest) {
+		return page(repository.findAllBy(pageRequest), repository.count(), pageRequest);
+	}
+
+	public Mono<Page<ClientDTO>> findByIncomeGreaterThan(PageRequest pageRequest, Double income) {
+		return page(repository.findByIncomeGreaterThan(income, pageRequest),
+				repository.countByIncomeGreaterThan(income), pageRequest);
+	}
+
+	public Mono<Page<ClientDTO>> findByCpfContaining(PageRequest pageRequest, String cpf) {
+		checkCpfFragment(cpf);
+		return page(repository.findByCpfContaining(cpf, pageRequest),
+				repository.countByCpfContaining(cpf), pageRequest);
+	}
+
+	public Mono<ClientDTO> findById(Long id) {
+		return repository.findById(id)
+				.map(ClientDTO::new)
+				.switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Entity not found")));
+	}
+
+	@Transactional
+	public Mono<ClientDTO> insert(ClientDTO dto) {
+		Client entity = dto.toEntity();
+		entity.setId(null);
+		return repository.save(entity).map(ClientDTO::new);
+	}
+
+	@Transactional
+	public Mono<ClientDTO> update(Long id, ClientDTO dto) {
+		return repository.findById(id)
+				.switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Id not found " + id)))
+				.flatMap(entity -> {
+					updateData(entity, dto);
+					return repository.save(entity);
+				})
+				.map(ClientDTO::new);
+	}
+
+	@Transactional
+	public Mono<Void> delete(Long id) {
+		return repository.existsById(id)
+				.flatMap(exists -> exists
+						? repository.deleteById(id)
+						: Mono.error(new ResourceNotFoundException("Id not found " + id)));
+	}
+
+	/*
+	 * Todos os clientes (com filtros opcionais) em ordem de id, como no
+	 * export da versão servlet. O Flux é consumido sob demanda: o R2DBC só
+	 * busca mais linhas quando quem lê a resposta pede mais (backpressure)
+	 */
+	public Flux<ClientDTO> export(Double income, String cpf) {
+		checkCpfFragment(cpf);
+		Sort sort = Sort.by("id");
+		Flux<Client> clients;
+		if (income != null && cpf != null) {
+			clients = repository.findByIncomeGreaterThanAndCpfContaining(income, cpf, sort);
+		} else if (income != null) {
+			clients = repository.findByIncomeGreaterThan(income, sort);
+		} else if (cpf != null) {
+			clients = repository.findByCpfContaining(cpf, sort);
+		} else {
+			clients = repository.findAllBy(sort);
+		}
+		return clients.map(ClientDTO::new);
+	}
+
+	/*
+	 * Mesma regra da versão servlet: o trecho do CPF é procurado
+	 * literalmente, então '%' e '_' são recusados em vez de virarem curingas
+	 */
+	public static void checkCpfFragment(String cpf) {
+		if (cpf != null && (cpf.indexOf('%') >= 0 || cpf.indexOf('_') >= 0)) {
+			throw new InvalidParameterException("Invalid cpf: '%' and '_' are not accepted in a CPF fragment");
+		}
+	}
+
+	private static Mono<Page<ClientDTO>> page(Flux<Client> content, Mono<Long> count, PageRequest pageRequest) {
+		Mono<List<ClientDTO>> list = content.map(ClientDTO::new).collectList();
+		return Mono.zip(list, count)
+				.map(tuple -> new PageImpl<>(tuple.getT1(), pageRequest, tuple.getT2()));
+	}
+
+	private void updateData(Client entity, ClientDTO dto) {
+		entity.setName(dto.getName());
+		entity.setCpf(dto.getCpf());
+		entity.setIncome(dto.getIncome());
+		entity.setBirthDate(dto.getBirthDate());
+		entity.setChildren(dto.getChildren());
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.iftm.client.services;
+
+import com.iftm.client.services.exceptions.InvalidParameterException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+
+import java.util.Set;
+
+/*
+ * Ordenações aceitas nas listagens, as mesmas da versão servlet: só colunas
+ * com índice em tb_client (ver schema.sql). O id entra como desempate para a paginação ser estável,
+ * ou seja, registros com o mesmo valor não trocam de página entre consultas.
+ */
+public final class ClientSort {
+
+	private static final Set<String> SORTABLE = Set.of("id", "name", "cpf", "income");
+
+	private ClientSort() {
+	}
+
+	public static boolean isSortable(String orderBy) {
+		return SORTABLE.contains(orderBy);
+	}
+
+	public static Direction direction(String direction) {
+		try {
+			return Direction.fromString(direction);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidParameterException("Invalid direction: " + direction);
+		}
+	}
+
+	public static Sort sort(Direction direction, String orderBy) {
+		if (!isSortable(orderBy)) {
+			throw new InvalidParameterException("Invalid orderBy: " + orderBy + " (accepted: id, name, cpf, income)");
+		}
+		Sort sort = Sort.by(direction, orderBy);
+		return "id".equals(orderBy) ? sort : sort.and(Sort.by(direction, "id"));
+	}
+
+	public static PageRequest pageRequest(Integer page, Integer linesPerPage, String direction, String orderBy) {
+		return PageRequest.of(page, linesPerPage, sort(direction(direction), orderBy));
+	}
+
+}
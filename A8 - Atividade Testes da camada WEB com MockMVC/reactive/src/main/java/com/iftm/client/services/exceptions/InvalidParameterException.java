@@ -0,0 +1,10 @@
+package com.iftm.client.services.exceptions;
+
+public class InvalidParameterException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public InvalidParameterException(String msg) {
+		super(msg);
+	}
+
+}
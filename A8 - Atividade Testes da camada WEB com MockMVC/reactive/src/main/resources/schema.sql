@@ -0,0 +1,13 @@
+DROP TABLE IF EXISTS tb_client;
+CREATE TABLE tb_client (
+	id BIGINT AUTO_INCREMENT PRIMARY KEY,
+	name VARCHAR(255),
+	cpf VARCHAR(255),
+	income DOUBLE,
+	birth_date TIMESTAMP WITH TIME ZONE,
+	children INTEGER,
+	version BIGINT
+);
+CREATE INDEX idx_client_cpf ON tb_client (cpf, id);
+CREATE INDEX idx_client_income ON tb_client (income, id);
+CREATE INDEX idx_client_name ON tb_client (name, id);
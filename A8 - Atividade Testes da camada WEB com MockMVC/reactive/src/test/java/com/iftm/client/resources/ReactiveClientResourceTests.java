@@ -0,0 +1,185 @@
+package com.iftm.client.resources;
+
+import com.iftm.client.dto.ClientDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class ReactiveClientResourceTests {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    @DisplayName("Verificar se o endpoint reativo clients/id retorna o mesmo corpo da versão servlet")
+    public void verificaSeOEndpointRetornaOClienteCorretoQuandoOIDExiste() {
+        webTestClient.get().uri("/clients/{id}", 5L)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(5)
+                .jsonPath("$.name").isEqualTo("Gilberto Gil")
+                .jsonPath("$.cpf").isEqualTo("10419344882")
+                .jsonPath("$.income").isEqualTo(2500.0)
+                .jsonPath("$.birthDate").isEqualTo("1949-05-05T07:00:00Z")
+                .jsonPath("$.children").isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Verificar se o endpoint reativo clients/id retorna not found quando o id não existe")
+    public void verificaSeOEndpointRetornaNotFoundQuandoOIDNaoExiste() {
+        webTestClient.get().uri("/clients/{id}", 942L)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Resource not found")
+                .jsonPath("$.path").isEqualTo("/clients/942");
+    }
+
+    @Test
+    @DisplayName("Verificar se a listagem paginada por salário tem o mesmo formato de Page da versão servlet")
+    public void testarEndPointRetornaRegistrosEspecificosFindByIncome() {
+        webTestClient.get().uri("/clients/incomeGreaterThan?income=4000&linesPerPage=2&orderBy=income&direction=DESC")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(2)
+                .jsonPath("$.content[0].name").isEqualTo("Toni Morrison")
+                .jsonPath("$.totalElements").isNumber()
+                .jsonPath("$.pageable.pageSize").isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Verificar se a listagem reativa recusa orderBy fora da lista e direction inválida com 400, como a versão servlet")
+    public void testarOrdenacaoInvalidaRetornaBadRequest() {
+        webTestClient.get().uri("/clients/?orderBy=birthDate")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Invalid parameter")
+                .jsonPath("$.message").isEqualTo("Invalid orderBy: birthDate (accepted: id, name, cpf, income)")
+                .jsonPath("$.path").isEqualTo("/clients/");
+
+        webTestClient.get().uri("/clients/incomeGreaterThan?income=0&direction=UP")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Invalid direction: UP");
+    }
+
+    @Test
+    @DisplayName("Verificar se a ordenação reativa usa o id como desempate, como a versão servlet")
+    public void testarOrdenacaoComDesempatePorId() {
+        webTestClient.get().uri("/clients/?orderBy=income&direction=desc&linesPerPage=12")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].name").isEqualTo("Toni Morrison")
+                .jsonPath("$.pageable.sort.sorted").isEqualTo(true);
+    }
+
+    @Test
+    @DisplayName("Verificar se a busca e a exportação reativas por CPF recusam '%' e '_' com 400, como a versão servlet")
+    public void testarCuringasNoCpfRetornamBadRequest() {
+        webTestClient.get().uri("/clients/cpf/?cpf={cpf}", "1%4")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Invalid parameter")
+                .jsonPath("$.message").isEqualTo("Invalid cpf: '%' and '_' are not accepted in a CPF fragment");
+
+        webTestClient.get().uri("/clients/export?cpf={cpf}", "104_9")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Verificar se a exportação NDJSON é entregue em streaming, cliente a cliente")
+    public void testarExportacaoNdjsonComFiltroDeCpf() {
+        Flux<ClientDTO> clientes = webTestClient.get().uri("/clients/export?cpf=1021")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(ClientDTO.class)
+                .getResponseBody();
+
+        StepVerifier.create(clientes, 0)
+                .thenRequest(1)
+                .expectNextMatches(dto -> dto.getId() == 8L && dto.getName().equals("Toni Morrison"))
+                .thenRequest(1)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Verificar se a exportação reativa em CSV põe entre aspas o campo com quebra de linha CR")
+    public void testarExportacaoCsvComRetornoDeCarroNoNome() {
+        ClientDTO criado = webTestClient.post().uri("/clients/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new ClientDTO(null, "Linha\rQuebrada", "66600000001", 987654.0,
+                        Instant.parse("1996-12-23T07:00:00Z"), 0))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(ClientDTO.class)
+                .returnResult().getResponseBody();
+        try {
+            webTestClient.get().uri("/clients/export?income=900000&format=csv")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(String.class)
+                    .isEqualTo("id,name,cpf,income,birthDate,children\n"
+                            + criado.getId() + ",\"Linha\rQuebrada\",66600000001,987654.0,1996-12-23T07:00:00Z,0\n");
+        } finally {
+            webTestClient.delete().uri("/clients/{id}", criado.getId()).exchange();
+        }
+    }
+
+    @Test
+    @DisplayName("Testa se a inserção, alteração e exclusão reativas seguem o contrato da versão servlet")
+    public void testaRetornoSucessoInsertUpdateDelete() {
+        ClientDTO client = new ClientDTO(null, "Reativo", "55500000001", 1200.0,
+                Instant.parse("1996-12-23T07:00:00Z"), 1);
+
+        ClientDTO criado = webTestClient.post().uri("/clients/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(client)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().exists("Location")
+                .expectBody(ClientDTO.class)
+                .returnResult().getResponseBody();
+
+        client.setIncome(1300.0);
+        webTestClient.put().uri("/clients/{id}", criado.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(client)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.income").isEqualTo(1300.0);
+
+        webTestClient.delete().uri("/clients/{id}", criado.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.delete().uri("/clients/{id}", criado.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
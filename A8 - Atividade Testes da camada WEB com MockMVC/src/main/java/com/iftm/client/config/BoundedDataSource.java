@@ -0,0 +1,94 @@
+package com.iftm.client.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/*
+ * DataSource que limita quantas conexões podem estar em uso ao mesmo tempo.
+ * Com threads virtuais não há mais o teto natural do pool do Tomcat, então é
+ * este semáforo que impede milhares de requisições de chegarem juntas ao banco.
+ * A permissão é devolvida no close() da conexão.
+ */
+public class BoundedDataSource extends DelegatingDataSource {
+
+	private final Semaphore permits;
+	private final Duration acquireTimeout;
+
+	public BoundedDataSource(DataSource target, int maxConcurrency, Duration acquireTimeout) {
+		super(target);
+		this.permits = new Semaphore(maxConcurrency, true);
+		this.acquireTimeout = acquireTimeout;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		acquire();
+		return bound(() -> super.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		acquire();
+		return bound(() -> super.getConnection(username, password));
+	}
+
+	public int availablePermits() {
+		return permits.availablePermits();
+	}
+
+	private void acquire() throws SQLException {
+		try {
+			if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+				throw new SQLTransientConnectionException(
+						"No database permit available after " + acquireTimeout.toMillis() + "ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a database permit", e);
+		}
+	}
+
+	private Connection bound(ConnectionSupplier supplier) throws SQLException {
+		Connection connection;
+		try {
+			connection = supplier.get();
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+		AtomicBoolean released = new AtomicBoolean();
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+						try {
+							return method.invoke(connection, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						} finally {
+							permits.release();
+						}
+					}
+					try {
+						return method.invoke(connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	private interface ConnectionSupplier {
+		Connection get() throws SQLException;
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.iftm.client.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+	public static final String CLIENTS = "clients";
+
+	/*
+	 * Cache em memória dos clientes buscados por id. Os puts e evicts só são
+	 * aplicados após o commit, então uma transação desfeita não deixa dado no cache.
+	 * As estatísticas (hit/miss/eviction) saem em /actuator/metrics/cache.*
+	 */
+	@Bean
+	public CacheManager cacheManager(
+			@Value("${client.cache.maximum-size:10000}") long maximumSize,
+			@Value("${client.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+		CaffeineCacheManager caffeine = new CaffeineCacheManager(CLIENTS);
+		caffeine.setCaffeine(Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWrite)
+				.recordStats());
+		return new TransactionAwareCacheManagerProxy(caffeine);
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.iftm.client.config;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.iftm.client.dto.ClientDTO;
+
+@Configuration
+public class JacksonConfig {
+
+	public static final String CLIENT_FIELDS = "clientFields";
+
+	/*
+	 * O filtro do parâmetro fields= entra no ClientDTO por mixin, só no
+	 * ObjectMapper do Spring (o da camada web), junto com o filtro padrão que
+	 * escreve todos os campos. Outros ObjectMappers serializam o ClientDTO
+	 * sem precisar de FilterProvider.
+	 */
+	@Bean
+	public Jackson2ObjectMapperBuilderCustomizer clientFieldsFilter() {
+		return builder -> builder
+				.mixIn(ClientDTO.class, ClientFieldsMixin.class)
+				.filters(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+	}
+
+	@JsonFilter(CLIENT_FIELDS)
+	abstract static class ClientFieldsMixin {
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.iftm.client.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Timer "client.service" para cada método público do ClientService, com tags
+ * method e exception. O histograma de percentis é ligado em
+ * management.metrics.distribution.percentiles-histogram.client.service
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+	public static final String METRIC = "client.service";
+
+	private final MeterRegistry registry;
+
+	public ServiceMetricsAspect(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Around("execution(public * com.iftm.client.services.ClientService.*(..))")
+	public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+		Timer.Sample sample = Timer.start(registry);
+		String exception = "none";
+		try {
+			return joinPoint.proceed();
+		} catch (Throwable e) {
+			exception = e.getClass().getSimpleName();
+			throw e;
+		} finally {
+			sample.stop(Timer.builder(METRIC)
+					.description("ClientService method execution time")
+					.tag("method", joinPoint.getSignature().getName())
+					.tag("exception", exception)
+					.register(registry));
+		}
+	}
+
+}
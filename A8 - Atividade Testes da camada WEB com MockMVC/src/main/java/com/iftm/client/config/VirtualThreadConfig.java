@@ -0,0 +1,85 @@
+package com.iftm.client.config;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Modo opcional (client.threads.virtual=true) em que o Tomcat atende cada
+ * requisição, e portanto cada chamada ao ClientService, numa thread virtual.
+ * Só é ativado em Java 21+ (checado pela versão da JVM); em JVMs mais antigas
+ * o pool de threads normal do Tomcat é mantido e um aviso é registrado.
+ * O acesso ao banco fica limitado pelo pool do Hikari; client.jdbc.max-concurrency
+ * (0 = desligado) coloca um BoundedDataSource à frente dele, útil só com um
+ * valor menor que o pool, para deixar conexões livres para outras tarefas.
+ */
+@Configuration
+@ConditionalOnProperty(name = "client.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+	static final int VIRTUAL_THREADS_SINCE = 21;
+
+	private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutor() {
+		ExecutorService executor = newVirtualThreadPerTaskExecutor(Runtime.version().feature());
+		return handler -> {
+			if (executor != null) {
+				handler.setExecutor(executor);
+			}
+		};
+	}
+
+	@Bean
+	public static BeanPostProcessor boundedDataSource(
+			@Value("${client.jdbc.max-concurrency:0}") int maxConcurrency,
+			@Value("${client.jdbc.acquire-timeout:30s}") Duration acquireTimeout) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (maxConcurrency <= 0 || !(bean instanceof DataSource) || bean instanceof BoundedDataSource) {
+					return bean;
+				}
+				if (bean instanceof HikariDataSource && maxConcurrency >= ((HikariDataSource) bean).getMaximumPoolSize()) {
+					log.warn("client.jdbc.max-concurrency={} is not below the Hikari pool size ({}); it has no effect",
+							maxConcurrency, ((HikariDataSource) bean).getMaximumPoolSize());
+				}
+				return new BoundedDataSource((DataSource) bean, maxConcurrency, acquireTimeout);
+			}
+		};
+	}
+
+	/*
+	 * O projeto compila para Java 11, então a fábrica de threads virtuais é
+	 * buscada por reflexão, e só quando a JVM é 21 ou mais nova (no 19 e 20
+	 * ela existe mas é preview)
+	 */
+	static ExecutorService newVirtualThreadPerTaskExecutor(int javaVersion) {
+		if (javaVersion < VIRTUAL_THREADS_SINCE) {
+			log.warn("Virtual threads need Java {}+ but this is Java {}; keeping Tomcat's platform thread pool",
+					VIRTUAL_THREADS_SINCE, javaVersion);
+			return null;
+		}
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			log.warn("Virtual threads are not available on Java {}; keeping Tomcat's platform thread pool", javaVersion);
+			return null;
+		}
+	}
+
+}
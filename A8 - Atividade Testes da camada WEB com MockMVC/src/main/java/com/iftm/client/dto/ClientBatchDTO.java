@@ -0,0 +1,36 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Resultado da busca de vários clientes por id: os encontrados na ordem
+ * pedida e os ids que não existem.
+ */
+public class ClientBatchDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private List<ClientDTO> clients = new ArrayList<>();
+	private List<Long> missing = new ArrayList<>();
+
+	public ClientBatchDTO() {
+	}
+
+	public List<ClientDTO> getClients() {
+		return clients;
+	}
+
+	public void setClients(List<ClientDTO> clients) {
+		this.clients = clients;
+	}
+
+	public List<Long> getMissing() {
+		return missing;
+	}
+
+	public void setMissing(List<Long> missing) {
+		this.missing = missing;
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClientBulkDeleteDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private List<Long> ids = new ArrayList<>();
+	private List<String> cpfs = new ArrayList<>();
+
+	public ClientBulkDeleteDTO() {
+	}
+
+	public ClientBulkDeleteDTO(List<Long> ids, List<String> cpfs) {
+		setIds(ids);
+		setCpfs(cpfs);
+	}
+
+	public List<Long> getIds() {
+		return ids;
+	}
+
+	// "ids": null no JSON vale como lista vazia
+	public void setIds(List<Long> ids) {
+		this.ids = ids == null ? new ArrayList<>() : ids;
+	}
+
+	public List<String> getCpfs() {
+		return cpfs;
+	}
+
+	public void setCpfs(List<String> cpfs) {
+		this.cpfs = cpfs == null ? new ArrayList<>() : cpfs;
+	}
+
+}
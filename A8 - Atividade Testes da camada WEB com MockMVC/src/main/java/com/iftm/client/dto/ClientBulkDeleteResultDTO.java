@@ -0,0 +1,36 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Resultado da exclusão em massa: para cada id ou cpf pedido, quantos
+ * clientes foram apagados (0 quando não existia).
+ */
+public class ClientBulkDeleteResultDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Map<Long, Integer> ids = new LinkedHashMap<>();
+	private Map<String, Integer> cpfs = new LinkedHashMap<>();
+
+	public ClientBulkDeleteResultDTO() {
+	}
+
+	public Map<Long, Integer> getIds() {
+		return ids;
+	}
+
+	public void setIds(Map<Long, Integer> ids) {
+		this.ids = ids;
+	}
+
+	public Map<String, Integer> getCpfs() {
+		return cpfs;
+	}
+
+	public void setCpfs(Map<String, Integer> cpfs) {
+		this.cpfs = cpfs;
+	}
+
+}
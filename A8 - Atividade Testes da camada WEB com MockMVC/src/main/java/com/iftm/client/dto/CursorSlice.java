@@ -0,0 +1,26 @@
+package com.iftm.client.dto;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+/*
+ * Fatia de resultados da paginação por cursor (keyset).
+ * O nextCursor é nulo quando não há próxima página.
+ */
+public class CursorSlice<T> extends SliceImpl<T> {
+	private static final long serialVersionUID = 1L;
+
+	private final String nextCursor;
+
+	public CursorSlice(List<T> content, Pageable pageable, boolean hasNext, String nextCursor) {
+		super(content, pageable, hasNext);
+		this.nextCursor = nextCursor;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+
+/*
+ * Faixa [from, to) do histograma de salários e quantos clientes caem nela
+ */
+public class IncomeBucketDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Double from;
+	private Double to;
+	private Long count;
+
+	public IncomeBucketDTO() {
+	}
+
+	public IncomeBucketDTO(Double from, Double to, Long count) {
+		this.from = from;
+		this.to = to;
+		this.count = count;
+	}
+
+	public Double getFrom() {
+		return from;
+	}
+
+	public void setFrom(Double from) {
+		this.from = from;
+	}
+
+	public Double getTo() {
+		return to;
+	}
+
+	public void setTo(Double to) {
+		this.to = to;
+	}
+
+	public Long getCount() {
+		return count;
+	}
+
+	public void setCount(Long count) {
+		this.count = count;
+	}
+
+}
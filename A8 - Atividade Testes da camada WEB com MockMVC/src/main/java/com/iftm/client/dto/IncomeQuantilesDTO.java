@@ -0,0 +1,64 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Quantis aproximados dos salários: cada valor em "quantiles" fica a no
+ * máximo relativeAccuracy (erro relativo) do quantil exato; count, sum e
+ * average são exatos
+ */
+public class IncomeQuantilesDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Long count;
+	private Double sum;
+	private Double average;
+	private Double relativeAccuracy;
+	private Map<String, Double> quantiles = new LinkedHashMap<>();
+
+	public IncomeQuantilesDTO() {
+	}
+
+	public Long getCount() {
+		return count;
+	}
+
+	public void setCount(Long count) {
+		this.count = count;
+	}
+
+	public Double getSum() {
+		return sum;
+	}
+
+	public void setSum(Double sum) {
+		this.sum = sum;
+	}
+
+	public Double getAverage() {
+		return average;
+	}
+
+	public void setAverage(Double average) {
+		this.average = average;
+	}
+
+	public Double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+	public void setRelativeAccuracy(Double relativeAccuracy) {
+		this.relativeAccuracy = relativeAccuracy;
+	}
+
+	public Map<String, Double> getQuantiles() {
+		return quantiles;
+	}
+
+	public void setQuantiles(Map<String, Double> quantiles) {
+		this.quantiles = quantiles;
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Estatísticas de salário dos clientes filtrados. Sem clientes, average, min
+ * e max ficam nulos
+ */
+public class IncomeStatsDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Long count = 0L;
+	private Double sum = 0.0;
+	private Double average;
+	private Double min;
+	private Double max;
+	private Double bucketWidth;
+	private List<IncomeBucketDTO> buckets = new ArrayList<>();
+
+	public IncomeStatsDTO() {
+	}
+
+	public Long getCount() {
+		return count;
+	}
+
+	public void setCount(Long count) {
+		this.count = count;
+	}
+
+	public Double getSum() {
+		return sum;
+	}
+
+	public void setSum(Double sum) {
+		this.sum = sum;
+	}
+
+	public Double getAverage() {
+		return average;
+	}
+
+	public void setAverage(Double average) {
+		this.average = average;
+	}
+
+	public Double getMin() {
+		return min;
+	}
+
+	public void setMin(Double min) {
+		this.min = min;
+	}
+
+	public Double getMax() {
+		return max;
+	}
+
+	public void setMax(Double max) {
+		this.max = max;
+	}
+
+	public Double getBucketWidth() {
+		return bucketWidth;
+	}
+
+	public void setBucketWidth(Double bucketWidth) {
+		this.bucketWidth = bucketWidth;
+	}
+
+	public List<IncomeBucketDTO> getBuckets() {
+		return buckets;
+	}
+
+	public void setBuckets(List<IncomeBucketDTO> buckets) {
+		this.buckets = buckets;
+	}
+
+}
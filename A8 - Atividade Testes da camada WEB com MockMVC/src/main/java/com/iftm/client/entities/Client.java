@@ -8,21 +8,48 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+/*
+ * Índices das colunas usadas em filtros e ordenações. O id fica no fim de
+ * cada índice porque é o desempate da paginação (ORDER BY coluna, id): assim
+ * o banco percorre o índice já na ordem pedida, sem ordenar a tabela inteira.
+ */
 @Entity
-@Table(name = "tb_client")
+@Table(name = "tb_client", indexes = {
+		@Index(name = "idx_client_cpf", columnList = "cpf, id"),
+		@Index(name = "idx_client_income", columnList = "income, id"),
+		@Index(name = "idx_client_name", columnList = "name, id") })
+@DynamicUpdate
 public class Client implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
+	/*
+	 * Sequência com otimizador pooled-lo: o Hibernate reserva 50 ids por ida ao
+	 * banco e consegue agrupar os INSERTs em lotes JDBC (com IDENTITY não consegue).
+	 */
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_seq")
+	@GenericGenerator(name = "client_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+			@Parameter(name = "sequence_name", value = "tb_client_seq"),
+			@Parameter(name = "increment_size", value = "50"),
+			@Parameter(name = "optimizer", value = "pooled-lo") })
 	private Long id;
 	private String name;
 	private String cpf;
 	private Double income;
 	private Instant birthDate;
 	private Integer children;
+
+	// versão da linha: incrementada a cada UPDATE e usada como ETag de /clients/{id}
+	@Version
+	private Long version;
 	
 	public Client() {
 	}
@@ -84,6 +111,14 @@ public class Client implements Serializable {
 		this.children = children;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -0,0 +1,47 @@
+package com.iftm.client.entities;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/*
+ * Contador de linhas escritas em tb_client, dividido em faixas para que escritas
+ * concorrentes não disputem a mesma linha. Mantido pela trigger
+ * ClientChangeTrigger (criada em import.sql); a soma das faixas é a versão
+ * da tabela e epoch é o momento em que o banco foi criado. cpf_removals
+ * conta as linhas cujo CPF saiu da tabela (excluídas ou com o CPF trocado).
+ */
+@Entity
+@Table(name = "tb_client_changes")
+public class ClientChanges implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private Integer stripe;
+	private Long epoch;
+	private Long changes;
+	@Column(name = "cpf_removals")
+	private Long cpfRemovals;
+
+	public ClientChanges() {
+	}
+
+	public Integer getStripe() {
+		return stripe;
+	}
+
+	public Long getEpoch() {
+		return epoch;
+	}
+
+	public Long getChanges() {
+		return changes;
+	}
+
+	public Long getCpfRemovals() {
+		return cpfRemovals;
+	}
+}
@@ -0,0 +1,75 @@
+package com.iftm.client.entities;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/*
+ * Índice de trigramas do CPF: uma linha por trigrama distinto de cada cliente.
+ * Mantido pela trigger CpfTrigramTrigger (criada em import.sql) e usado para
+ * responder buscas por trecho do CPF sem varrer tb_client.
+ */
+@Entity
+@Table(name = "tb_client_cpf_trigram", indexes = @Index(name = "idx_cpf_trigram", columnList = "trigram, client_id"))
+@IdClass(ClientCpfTrigram.Key.class)
+public class ClientCpfTrigram implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(length = 3)
+	private String trigram;
+
+	@Id
+	@Column(name = "client_id")
+	private Long clientId;
+
+	public ClientCpfTrigram() {
+	}
+
+	public ClientCpfTrigram(String trigram, Long clientId) {
+		this.trigram = trigram;
+		this.clientId = clientId;
+	}
+
+	public String getTrigram() {
+		return trigram;
+	}
+
+	public Long getClientId() {
+		return clientId;
+	}
+
+	public static class Key implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private String trigram;
+		private Long clientId;
+
+		public Key() {
+		}
+
+		public Key(String trigram, Long clientId) {
+			this.trigram = trigram;
+			this.clientId = clientId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key key = (Key) o;
+			return Objects.equals(trigram, key.trigram) && Objects.equals(clientId, key.clientId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(trigram, clientId);
+		}
+	}
+}
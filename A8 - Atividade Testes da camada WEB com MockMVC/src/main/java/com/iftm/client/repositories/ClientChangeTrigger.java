@@ -0,0 +1,61 @@
+package com.iftm.client.repositories;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/*
+ * Trigger H2 (AFTER INSERT, UPDATE, DELETE em tb_client) que soma 1 em
+ * tb_client_changes a cada linha escrita, venha ela do Hibernate, de JPQL em
+ * massa, de outra instância ou de SQL direto. É por linha porque o H2 não
+ * deixa uma trigger de comando escrever num comando em auto-commit. A faixa
+ * é escolhida pela sessão, então transações concorrentes quase nunca esperam
+ * uma pela outra; o incremento só fica visível no commit da escrita.
+ * Também soma em cpf_removals as linhas cujo CPF antigo deixou de existir
+ * (DELETE, ou UPDATE que de fato trocou o CPF).
+ */
+public class ClientChangeTrigger implements Trigger {
+
+    public static final int STRIPES = 16;
+
+    private int cpfColumn = -1;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                     boolean before, int type) throws SQLException {
+        try (ResultSet columns = conn.getMetaData().getColumns(null, schemaName, tableName, null)) {
+            while (columns.next()) {
+                if (columns.getString("COLUMN_NAME").equalsIgnoreCase("cpf")) {
+                    cpfColumn = columns.getInt("ORDINAL_POSITION") - 1;
+                }
+            }
+        }
+        if (cpfColumn < 0) {
+            throw new SQLException("Table " + tableName + " has no cpf column");
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        boolean cpfRemoved = oldRow != null && oldRow[cpfColumn] != null
+                && (newRow == null || !Objects.equals(oldRow[cpfColumn], newRow[cpfColumn]));
+        try (PreparedStatement update = conn.prepareStatement(
+                "UPDATE tb_client_changes SET changes = changes + 1, cpf_removals = cpf_removals + ? "
+                        + "WHERE stripe = MOD(SESSION_ID(), " + STRIPES + ")")) {
+            update.setInt(1, cpfRemoved ? 1 : 0);
+            update.executeUpdate();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+}
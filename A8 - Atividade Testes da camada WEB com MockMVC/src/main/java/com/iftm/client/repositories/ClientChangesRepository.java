@@ -0,0 +1,20 @@
+package com.iftm.client.repositories;
+
+import com.iftm.client.entities.ClientChanges;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ClientChangesRepository extends JpaRepository<ClientChanges, Integer> {
+    /*
+     * Uma linha (epoch, soma das faixas): a versão de tb_client vista pelo banco
+     */
+    @Query("SELECT obj.epoch, SUM(obj.changes) FROM ClientChanges obj GROUP BY obj.epoch")
+    List<Object[]> findVersion();
+
+    @Query("SELECT COALESCE(SUM(obj.cpfRemovals), 0) FROM ClientChanges obj")
+    long sumCpfRemovals();
+}
@@ -1,18 +1,33 @@
 package com.iftm.client.repositories;
 
+import com.iftm.client.dto.ClientDTO;
 import com.iftm.client.entities.Client;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ClientRepository extends JpaRepository<Client, Long> {
+public interface ClientRepository extends JpaRepository<Client, Long>, ClientRepositoryCustom {
+    /*
+     * Projeção direto em ClientDTO: as consultas de leitura não criam entidades
+     * gerenciadas (sem registro no contexto de persistência nem snapshot).
+     */
+    String SELECT_DTO = "SELECT new com.iftm.client.dto.ClientDTO(obj.id, obj.name, obj.cpf, obj.income, "
+            + "obj.birthDate, obj.children, obj.version) FROM Client obj";
+
     @Query(value = "SELECT c FROM Client c WHERE c.id = :id")
     public Optional<Client> findById(Long id);
 
@@ -26,12 +41,68 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     @Modifying
     @Query("DELETE FROM Client obj WHERE "
             + "obj.cpf = :cpf")
-    void deleteClientByCPF(String cpf);
+    int deleteClientByCPF(String cpf);
 
     @Query("SELECT DISTINCT obj FROM Client obj WHERE "
             + "obj.cpf = :cpf")
     Optional<Client> findClientByCPf(String cpf);
 
+    @Query(SELECT_DTO + " WHERE obj.cpf = :cpf ORDER BY obj.id")
+    List<ClientDTO> findDTOByCpf(String cpf);
+
+    /*
+     * CPFs para carregar o filtro de Bloom (CpfTracker); deve ser consumido
+     * dentro de uma transação e fechado. Sem DISTINCT: no H2 o DISTINCT pelo índice às vezes pula um CPF gravado
+     * por outra transação durante a leitura, e o filtro já ignora repetidos.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT obj.cpf FROM Client obj WHERE obj.cpf IS NOT NULL")
+    Stream<String> streamCpfs();
+
+    @Query("SELECT COUNT(DISTINCT obj.cpf) FROM Client obj")
+    long countDistinctCpfs();
+
+    /*
+     * Só os pares (income, id) em ordem, para carregar o sketch de quantis e
+     * o índice de salários; deve ser consumido dentro de uma transação e fechado
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT obj.income, obj.id FROM Client obj WHERE obj.income IS NOT NULL ORDER BY obj.income, obj.id")
+    Stream<Object[]> streamIncomesWithIds();
+
+    /*
+     * Leitura completa para a cópia em arquivo (ClientSnapshotStore): DTOs em
+     * ordem de id e o maior tamanho de cpf e name, que define a largura dos registros
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(SELECT_DTO + " ORDER BY obj.id")
+    Stream<ClientDTO> streamAllDTO();
+
+    @Query("SELECT MAX(LENGTH(obj.cpf)), MAX(LENGTH(obj.name)) FROM Client obj")
+    List<Object[]> maxTextLengths();
+
+    /*
+     * Exclusão em massa e patch sem carregar entidades: as consultas de apoio
+     * leem só (cpf,) id e salário, que informam o resultado de cada chave e o
+     * que sai do índice de salários (IncomeTracker). As linhas ficam travadas
+     * até o fim da transação, então o salário lido é o que o comando altera.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT obj.id, obj.income FROM Client obj WHERE obj.id IN :ids")
+    List<Object[]> findIncomesByIdIn(Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Client obj WHERE obj.id IN :ids")
+    int deleteByIdIn(Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT obj.cpf, obj.id, obj.income FROM Client obj WHERE obj.cpf IN :cpfs")
+    List<Object[]> findIncomesByCpfIn(Collection<String> cpfs);
+
+    @Modifying
+    @Query("DELETE FROM Client obj WHERE obj.cpf IN :cpfs")
+    int deleteByCpfIn(Collection<String> cpfs);
+
     public List<Client> findByCpfStartingWith(String cpf);
 
     Page<Client> findByIncome(double salarioI, Pageable pageable);
@@ -39,4 +110,68 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     Page<Client> findByIncomeGreaterThan(double salarioI, Pageable pageable);
 
     Page<Client> findByCpfLike(String parteCpf, Pageable pageable);
+
+    /*
+     * Busca por trecho do CPF pelo índice de trigramas: só os clientes que têm
+     * todos os trigramas do trecho são candidatos, e o LIKE confirma a ordem.
+     */
+    String WHERE_CPF_CONTAINS = " WHERE obj.cpf LIKE :cpf AND obj.id IN (SELECT t.clientId FROM ClientCpfTrigram t "
+            + "WHERE t.trigram IN :trigrams GROUP BY t.clientId HAVING COUNT(t) = :trigramCount)";
+
+    @Query(SELECT_DTO + " WHERE obj.id = :id")
+    Optional<ClientDTO> findDTOById(Long id);
+
+    @Query(SELECT_DTO + " WHERE obj.id IN :ids")
+    List<ClientDTO> findDTOByIdIn(Collection<Long> ids);
+
+    @Query(value = SELECT_DTO, countQuery = "SELECT COUNT(obj) FROM Client obj")
+    Page<ClientDTO> findAllDTO(Pageable pageable);
+
+    @Query(value = SELECT_DTO + " WHERE obj.income = :income",
+            countQuery = "SELECT COUNT(obj) FROM Client obj WHERE obj.income = :income")
+    Page<ClientDTO> findDTOByIncome(double income, Pageable pageable);
+
+    @Query(value = SELECT_DTO + " WHERE obj.income > :income",
+            countQuery = "SELECT COUNT(obj) FROM Client obj WHERE obj.income > :income")
+    Page<ClientDTO> findDTOByIncomeGreaterThan(double income, Pageable pageable);
+
+    @Query(value = SELECT_DTO + " WHERE obj.cpf LIKE :cpf",
+            countQuery = "SELECT COUNT(obj) FROM Client obj WHERE obj.cpf LIKE :cpf")
+    Page<ClientDTO> findDTOByCpfLike(String cpf, Pageable pageable);
+
+    @Query(value = SELECT_DTO + WHERE_CPF_CONTAINS,
+            countQuery = "SELECT COUNT(obj) FROM Client obj" + WHERE_CPF_CONTAINS)
+    Page<ClientDTO> findDTOByCpfContaining(String cpf, Collection<String> trigrams, long trigramCount, Pageable pageable);
+
+    /*
+     * Variantes com Slice: buscam linesPerPage + 1 registros para saber se há
+     * próxima página e não executam a consulta COUNT.
+     */
+    @Query(SELECT_DTO)
+    Slice<ClientDTO> findSliceBy(Pageable pageable);
+
+    @Query(SELECT_DTO + " WHERE obj.income = :income")
+    Slice<ClientDTO> findSliceByIncome(double income, Pageable pageable);
+
+    @Query(SELECT_DTO + " WHERE obj.income > :income")
+    Slice<ClientDTO> findSliceByIncomeGreaterThan(double income, Pageable pageable);
+
+    @Query(SELECT_DTO + " WHERE obj.cpf LIKE :cpf")
+    Slice<ClientDTO> findSliceByCpfLike(String cpf, Pageable pageable);
+
+    @Query(SELECT_DTO + WHERE_CPF_CONTAINS)
+    Slice<ClientDTO> findSliceByCpfContaining(String cpf, Collection<String> trigrams, long trigramCount, Pageable pageable);
+
+    /*
+     * Os COUNT das listagens sozinhos, para rodar em paralelo ao Slice
+     * (ParallelPageQueries)
+     */
+    @Query("SELECT COUNT(obj) FROM Client obj WHERE obj.income > :income")
+    long countByIncomeGreaterThan(double income);
+
+    @Query("SELECT COUNT(obj) FROM Client obj WHERE obj.cpf LIKE :cpf")
+    long countByCpfLike(String cpf);
+
+    @Query("SELECT COUNT(obj) FROM Client obj" + WHERE_CPF_CONTAINS)
+    long countByCpfContaining(String cpf, Collection<String> trigrams, long trigramCount);
 }
\ No newline at end of file
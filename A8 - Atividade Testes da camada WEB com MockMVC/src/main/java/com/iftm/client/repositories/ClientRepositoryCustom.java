@@ -0,0 +1,55 @@
+package com.iftm.client.repositories;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.entities.Client;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort.Direction;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface ClientRepositoryCustom {
+
+    /*
+     * Paginação keyset: devolve até "limit" clientes posteriores ao par
+     * (lastValue, lastId) na ordenação informada. Filtros nulos são ignorados;
+     * cpfContains é um trecho do CPF, buscado pelo índice de trigramas.
+     * Valores nulos de orderBy ficam no início em ASC e no fim em DESC.
+     */
+    List<ClientDTO> findAfter(Double incomeGreaterThan, String cpfContains, String orderBy, Direction direction,
+                           Object lastValue, Long lastId, int limit);
+
+    /*
+     * Sparse fieldsets: o SELECT traz só as colunas de "fields" (mais o id e as
+     * colunas da ordenação) e os outros campos do DTO ficam nulos. Busca uma
+     * linha a mais para saber se há próxima página, sem COUNT.
+     */
+    Slice<ClientDTO> findSliceWithFields(Set<String> fields, Double incomeGreaterThan, String cpfContains,
+                                         Pageable pageable);
+
+    long countFiltered(Double incomeGreaterThan, String cpfContains);
+
+    /*
+     * Percorre os clientes em ordem de id com um cursor JDBC (fetchSize linhas
+     * por ida ao banco). Deve ser consumido dentro de uma transação e fechado.
+     */
+    Stream<Client> streamAll(Double incomeGreaterThan, String cpfContains, int fetchSize);
+
+    /*
+     * Atualização parcial em um único UPDATE: só os campos não nulos de
+     * "changes" entram no SET. Retorna o número de linhas alteradas (0 ou 1).
+     */
+    int updatePartial(Long id, ClientDTO changes);
+
+    /*
+     * Histograma de salários em uma única consulta agregada: uma linha por
+     * faixa FLOOR(income / bucketWidth) com [faixa, count, sum, min, max],
+     * em ordem de faixa, no máximo maxResults faixas. Filtros nulos são
+     * ignorados; birthDate em [from, to).
+     */
+    List<Object[]> incomeHistogram(Integer children, Instant birthDateFrom, Instant birthDateTo, double bucketWidth,
+            int maxResults);
+}
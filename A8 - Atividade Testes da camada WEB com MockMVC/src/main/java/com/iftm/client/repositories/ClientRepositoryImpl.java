@@ -0,0 +1,256 @@
+package com.iftm.client.repositories;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.entities.Client;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort.Direction;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ClientRepositoryImpl implements ClientRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ClientDTO> findAfter(Double incomeGreaterThan, String cpfContains, String orderBy, Direction direction,
+                                  Object lastValue, Long lastId, int limit) {
+        // orderBy já foi validado pelo ClientCursor, por isso pode ser concatenado na consulta
+        List<String> conditions = filters(incomeGreaterThan, cpfContains);
+        if (lastId != null) {
+            conditions.add(keyset("obj." + orderBy, direction, lastValue));
+        }
+
+        StringBuilder jpql = new StringBuilder(ClientRepository.SELECT_DTO);
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        jpql.append(" ORDER BY obj.").append(orderBy).append(' ').append(direction)
+                .append(direction.isAscending() ? " NULLS FIRST" : " NULLS LAST");
+        if (!"id".equals(orderBy)) {
+            jpql.append(", obj.id ").append(direction);
+        }
+
+        TypedQuery<ClientDTO> query = entityManager.createQuery(jpql.toString(), ClientDTO.class);
+        setFilters(query, incomeGreaterThan, cpfContains);
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+            if (lastValue != null && !"id".equals(orderBy)) {
+                query.setParameter("lastValue", lastValue);
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Slice<ClientDTO> findSliceWithFields(Set<String> fields, Double incomeGreaterThan, String cpfContains,
+                                                Pageable pageable) {
+        // fields e a ordenação já foram validados (ClientFields e ClientSort)
+        Set<String> columns = new LinkedHashSet<>();
+        columns.add("id");
+        columns.addAll(fields);
+        pageable.getSort().forEach(order -> columns.add(order.getProperty()));
+
+        List<String> conditions = filters(incomeGreaterThan, cpfContains);
+        StringBuilder jpql = new StringBuilder("SELECT ");
+        jpql.append(columns.stream().map(column -> "obj." + column).collect(Collectors.joining(", ")));
+        jpql.append(" FROM Client obj");
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        if (pageable.getSort().isSorted()) {
+            jpql.append(" ORDER BY ").append(pageable.getSort().stream()
+                    .map(order -> "obj." + order.getProperty() + " " + order.getDirection())
+                    .collect(Collectors.joining(", ")));
+        }
+
+        Query query = entityManager.createQuery(jpql.toString());
+        setFilters(query, incomeGreaterThan, cpfContains);
+        List<?> rows = query.setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+
+        List<ClientDTO> content = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            // com uma coluna só o JPA devolve o valor e não um Object[]
+            Object[] values = row instanceof Object[] ? (Object[]) row : new Object[] { row };
+            content.add(toDTO(columns, values));
+        }
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    @Override
+    public long countFiltered(Double incomeGreaterThan, String cpfContains) {
+        List<String> conditions = filters(incomeGreaterThan, cpfContains);
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(obj) FROM Client obj");
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        setFilters(query, incomeGreaterThan, cpfContains);
+        return query.getSingleResult();
+    }
+
+    @Override
+    public Stream<Client> streamAll(Double incomeGreaterThan, String cpfContains, int fetchSize) {
+        List<String> conditions = filters(incomeGreaterThan, cpfContains);
+        StringBuilder jpql = new StringBuilder("SELECT obj FROM Client obj");
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        jpql.append(" ORDER BY obj.id");
+
+        TypedQuery<Client> query = entityManager.createQuery(jpql.toString(), Client.class);
+        setFilters(query, incomeGreaterThan, cpfContains);
+        // somente leitura: o Hibernate não guarda o snapshot de cada entidade
+        query.setHint(QueryHints.FETCH_SIZE, fetchSize);
+        query.setHint(QueryHints.READ_ONLY, true);
+        return query.getResultStream();
+    }
+
+    @Override
+    public int updatePartial(Long id, ClientDTO changes) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("name", changes.getName());
+        values.put("cpf", changes.getCpf());
+        values.put("income", changes.getIncome());
+        values.put("birthDate", changes.getBirthDate());
+        values.put("children", changes.getChildren());
+        values.values().removeIf(Objects::isNull);
+
+        StringBuilder jpql = new StringBuilder("UPDATE Client obj SET obj.version = obj.version + 1");
+        for (String field : values.keySet()) {
+            jpql.append(", obj.").append(field).append(" = :").append(field);
+        }
+        jpql.append(" WHERE obj.id = :id");
+
+        Query query = entityManager.createQuery(jpql.toString());
+        values.forEach(query::setParameter);
+        return query.setParameter("id", id).executeUpdate();
+    }
+
+    @Override
+    public List<Object[]> incomeHistogram(Integer children, Instant birthDateFrom, Instant birthDateTo, double bucketWidth,
+            int maxResults) {
+        // a largura entra como literal (é um double já validado) porque o H2 não
+        // reconhece a mesma expressão no GROUP BY quando ela tem parâmetro
+        String bucket = "FLOOR(obj.income / " + BigDecimal.valueOf(bucketWidth).toPlainString() + ")";
+        return incomeQuery("SELECT " + bucket + ", COUNT(obj), SUM(obj.income), MIN(obj.income), MAX(obj.income)",
+                " GROUP BY " + bucket + " ORDER BY " + bucket, children, birthDateFrom, birthDateTo)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    private TypedQuery<Object[]> incomeQuery(String select, String suffix, Integer children, Instant birthDateFrom,
+            Instant birthDateTo) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add("obj.income IS NOT NULL");
+        if (children != null) {
+            conditions.add("obj.children = :children");
+        }
+        if (birthDateFrom != null) {
+            conditions.add("obj.birthDate >= :birthDateFrom");
+        }
+        if (birthDateTo != null) {
+            conditions.add("obj.birthDate < :birthDateTo");
+        }
+        String jpql = select + " FROM Client obj WHERE " + String.join(" AND ", conditions) + suffix;
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
+        if (children != null) {
+            query.setParameter("children", children);
+        }
+        if (birthDateFrom != null) {
+            query.setParameter("birthDateFrom", birthDateFrom);
+        }
+        if (birthDateTo != null) {
+            query.setParameter("birthDateTo", birthDateTo);
+        }
+        return query;
+    }
+
+    private static List<String> filters(Double incomeGreaterThan, String cpfContains) {
+        List<String> conditions = new ArrayList<>();
+        if (incomeGreaterThan != null) {
+            conditions.add("obj.income > :income");
+        }
+        if (cpfContains != null) {
+            conditions.add("obj.cpf LIKE :cpf");
+            if (!CpfTrigrams.of(cpfContains).isEmpty()) {
+                conditions.add("obj.id IN (SELECT t.clientId FROM ClientCpfTrigram t WHERE t.trigram IN :trigrams "
+                        + "GROUP BY t.clientId HAVING COUNT(t) = :trigramCount)");
+            }
+        }
+        return conditions;
+    }
+
+    private static ClientDTO toDTO(Set<String> columns, Object[] values) {
+        ClientDTO dto = new ClientDTO();
+        int i = 0;
+        for (String column : columns) {
+            Object value = values[i++];
+            switch (column) {
+                case "id": dto.setId((Long) value); break;
+                case "name": dto.setName((String) value); break;
+                case "cpf": dto.setCpf((String) value); break;
+                case "income": dto.setIncome((Double) value); break;
+                case "birthDate": dto.setBirthDate((Instant) value); break;
+                case "children": dto.setChildren((Integer) value); break;
+                case "version": dto.setVersion((Long) value); break;
+                default: throw new IllegalArgumentException("Unknown column: " + column);
+            }
+        }
+        return dto;
+    }
+
+    private static void setFilters(Query query, Double incomeGreaterThan, String cpfContains) {
+        if (incomeGreaterThan != null) {
+            query.setParameter("income", incomeGreaterThan);
+        }
+        if (cpfContains != null) {
+            query.setParameter("cpf", "%" + cpfContains + "%");
+            Set<String> trigrams = CpfTrigrams.of(cpfContains);
+            if (!trigrams.isEmpty()) {
+                query.setParameter("trigrams", trigrams);
+                query.setParameter("trigramCount", (long) trigrams.size());
+            }
+        }
+    }
+
+    /*
+     * Condição "depois do último registro" escrita de forma que o banco consiga
+     * usar um índice de intervalo sobre a coluna de ordenação.
+     */
+    private static String keyset(String column, Direction direction, Object lastValue) {
+        if (column.equals("obj.id")) {
+            return direction.isAscending() ? "obj.id > :lastId" : "obj.id < :lastId";
+        }
+        if (direction.isAscending()) {
+            return lastValue == null
+                    ? "((" + column + " IS NULL AND obj.id > :lastId) OR " + column + " IS NOT NULL)"
+                    : "(" + column + " >= :lastValue AND (" + column + " > :lastValue OR obj.id > :lastId))";
+        }
+        return lastValue == null
+                ? "(" + column + " IS NULL AND obj.id < :lastId)"
+                : "((" + column + " <= :lastValue AND (" + column + " < :lastValue OR obj.id < :lastId)) OR "
+                        + column + " IS NULL)";
+    }
+}
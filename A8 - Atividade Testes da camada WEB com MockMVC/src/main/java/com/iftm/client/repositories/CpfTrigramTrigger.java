@@ -0,0 +1,74 @@
+package com.iftm.client.repositories;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/*
+ * Trigger H2 (AFTER INSERT, UPDATE, DELETE em tb_client) que mantém
+ * tb_client_cpf_trigram em dia com qualquer escrita, inclusive as feitas
+ * por JPQL em massa e pelo import.sql.
+ */
+public class CpfTrigramTrigger implements Trigger {
+
+    private int idColumn = -1;
+    private int cpfColumn = -1;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                     boolean before, int type) throws SQLException {
+        try (ResultSet columns = conn.getMetaData().getColumns(null, schemaName, tableName, null)) {
+            while (columns.next()) {
+                String name = columns.getString("COLUMN_NAME");
+                int index = columns.getInt("ORDINAL_POSITION") - 1;
+                if (name.equalsIgnoreCase("id")) {
+                    idColumn = index;
+                } else if (name.equalsIgnoreCase("cpf")) {
+                    cpfColumn = index;
+                }
+            }
+        }
+        if (idColumn < 0 || cpfColumn < 0) {
+            throw new SQLException("Table " + tableName + " has no id/cpf columns");
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (oldRow != null && newRow != null
+                && Objects.equals(oldRow[idColumn], newRow[idColumn])
+                && Objects.equals(oldRow[cpfColumn], newRow[cpfColumn])) {
+            return;
+        }
+        if (oldRow != null) {
+            try (PreparedStatement delete = conn.prepareStatement(
+                    "DELETE FROM tb_client_cpf_trigram WHERE client_id = ?")) {
+                delete.setObject(1, oldRow[idColumn]);
+                delete.executeUpdate();
+            }
+        }
+        if (newRow != null && newRow[cpfColumn] != null) {
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO tb_client_cpf_trigram (trigram, client_id) VALUES (?, ?)")) {
+                for (String trigram : CpfTrigrams.of(newRow[cpfColumn].toString())) {
+                    insert.setString(1, trigram);
+                    insert.setObject(2, newRow[idColumn]);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+}
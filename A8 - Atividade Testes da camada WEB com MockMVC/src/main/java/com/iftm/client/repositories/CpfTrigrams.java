@@ -0,0 +1,25 @@
+package com.iftm.client.repositories;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public final class CpfTrigrams {
+
+    private CpfTrigrams() {
+    }
+
+    /*
+     * Trigramas distintos do texto. Textos com menos de 3 caracteres não têm
+     * trigramas e a busca cai no LIKE comum.
+     */
+    public static Set<String> of(String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        if (text == null) {
+            return trigrams;
+        }
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,40 @@
+package com.iftm.client.resources;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.iftm.client.config.JacksonConfig;
+import com.iftm.client.services.ClientFields;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.Set;
+
+/*
+ * Aplica o parâmetro fields= no JSON de qualquer resposta do ClientResource
+ * (listagens, busca por id, por cpf, em lote...): só os campos pedidos do
+ * ClientDTO são escritos. As listagens também reduzem o SELECT (ver
+ * ClientService.findWithFields); nas buscas por id o DTO inteiro vem do cache.
+ */
+@ControllerAdvice(assignableTypes = ClientResource.class)
+public class ClientFieldsAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+	@Override
+	protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+			MethodParameter returnType, ServerHttpRequest request, ServerHttpResponse response) {
+		if (!(request instanceof ServletServerHttpRequest)) {
+			return;
+		}
+		Set<String> fields = ClientFields.parse(((ServletServerHttpRequest) request).getServletRequest().getParameter("fields"));
+		if (fields != null) {
+			bodyContainer.setFilters(new SimpleFilterProvider()
+					.addFilter(JacksonConfig.CLIENT_FIELDS, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+		}
+	}
+
+}
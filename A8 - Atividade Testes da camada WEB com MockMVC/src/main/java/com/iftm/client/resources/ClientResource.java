@@ -1,16 +1,40 @@
 package com.iftm.client.resources;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.iftm.client.dto.ClientBatchDTO;
+import com.iftm.client.dto.ClientBulkDeleteDTO;
+import com.iftm.client.dto.ClientBulkDeleteResultDTO;
 import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.IncomeQuantilesDTO;
+import com.iftm.client.dto.IncomeStatsDTO;
+import com.iftm.client.services.ClientFields;
 import com.iftm.client.services.ClientService;
+import com.iftm.client.services.ClientSort;
+import com.iftm.client.services.exceptions.InvalidParameterException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping(value = "/clients")
@@ -19,24 +43,67 @@ public class ClientResource {
 	@Autowired
 	private ClientService service;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/* Mudança
+	 * Com o parâmetro "after" (vazio na primeira página) a listagem usa
+	 * paginação por cursor e devolve o nextCursor da próxima página.
+	 * Com includeTotal=false devolve um Slice, sem o COUNT de totalElements.
+	 * Se o If-None-Match bate com a ETag atual responde 304 sem consultar o banco.
+	 * Com fields=id,name o SELECT e o JSON trazem só esses campos (ClientFieldsAdvice)
+	 */
 	@GetMapping
-	public ResponseEntity<Page<ClientDTO>> findAll(
+	public ResponseEntity<Slice<ClientDTO>> findAll(
 			@RequestParam(value = "page", defaultValue = "0") Integer page,
 			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
 			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
-			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) 
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy,
+			@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "includeTotal", defaultValue = "true") Boolean includeTotal,
+			@RequestParam(value = "fields", required = false) String fields,
+			WebRequest webRequest) 
 	{
-		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		if (webRequest.checkNotModified(service.listETag())) {
+			return null;
+		}
+		if (after != null) {
+			return ResponseEntity.ok().body(service.findAllAfter(after, linesPerPage, ClientSort.direction(direction), orderBy));
+		}
+		PageRequest pageRequest = ClientSort.pageRequest(page, linesPerPage, direction, orderBy);
+		Set<String> selected = ClientFields.parse(fields);
+		if (selected != null) {
+			return ResponseEntity.ok().body(service.findWithFields(pageRequest, null, null, selected, includeTotal));
+		}
+		if (!includeTotal) {
+			return ResponseEntity.ok().body(service.findAllSliced(pageRequest));
+		}
 		Page<ClientDTO> list = service.findAllPaged(pageRequest);
 		return ResponseEntity.ok().body(list);
 	}
 	
+	/* Mudança
+	 * ETag forte a partir da versão da linha; com o cliente no cache o 304
+	 * é respondido sem consulta e sem serializar o corpo
+	 */
 	@GetMapping(value = "/{id}")
-	public ResponseEntity<ClientDTO> findById(@PathVariable Long id) {
+	public ResponseEntity<ClientDTO> findById(@PathVariable Long id, WebRequest webRequest) {
 		ClientDTO dto = service.findById(id);
+		if (dto.getVersion() != null && webRequest.checkNotModified("\"" + dto.getVersion() + "\"")) {
+			return null;
+		}
 		return ResponseEntity.ok().body(dto);
 	}
 	
+	/* Mudança
+	 * Novo método: vários clientes por id numa só requisição
+	 * (ids=1,2,3), na ordem pedida; ids inexistentes vêm em missing, sem 404
+	 */
+	@GetMapping(value = "/batch")
+	public ResponseEntity<ClientBatchDTO> findAllById(@RequestParam(value = "ids") List<Long> ids) {
+		return ResponseEntity.ok().body(service.findAllById(ids));
+	}
+
 	@PostMapping
 	public ResponseEntity<ClientDTO> insert(@RequestBody ClientDTO dto) {
 		dto = service.insert(dto);
@@ -45,46 +112,248 @@ public class ClientResource {
 		return ResponseEntity.created(uri).body(dto);
 	}
 	
+	/* Mudança
+	 * Novo método: insere uma lista de clientes em lote e retorna os ids gerados
+	 */
+	@PostMapping(value = "/batch")
+	public ResponseEntity<List<Long>> insertAll(@RequestBody List<ClientDTO> dtos) {
+		List<Long> ids = service.insertAll(dtos);
+		return ResponseEntity.status(HttpStatus.CREATED).body(ids);
+	}
+
 	@PutMapping(value = "/{id}")
 	public ResponseEntity<ClientDTO> update(@PathVariable Long id, @RequestBody ClientDTO dto) {
 		dto = service.update(id, dto);
 		return ResponseEntity.ok().body(dto);
 	}
 
+	/* Mudança
+	 * Novo método: altera só os campos enviados no corpo (campos nulos são ignorados)
+	 */
+	@PatchMapping(value = "/{id}")
+	public ResponseEntity<Void> patch(@PathVariable Long id, @RequestBody ClientDTO dto) {
+		service.patch(id, dto);
+		return ResponseEntity.noContent().build();
+	}
+
 	@DeleteMapping(value = "/{id}")
 	public ResponseEntity<ClientDTO> delete(@PathVariable Long id) {
 		service.delete(id);
 		return ResponseEntity.noContent().build();
 	}
 
+	/* Mudança
+	 * Novo método: apaga vários clientes por id e/ou cpf e retorna, para cada
+	 * chave, quantos registros foram apagados
+	 */
+	@DeleteMapping
+	public ResponseEntity<ClientBulkDeleteResultDTO> deleteAll(@RequestBody ClientBulkDeleteDTO dto) {
+		ClientBulkDeleteResultDTO result = service.deleteAll(dto);
+		return ResponseEntity.ok().body(result);
+	}
+
 	/* Mudança
 	 * Novo método: retorna uma lista paginada baseada no salário
 	 */
 	@GetMapping(value = "/incomeGreaterThan")
-	public ResponseEntity<Page<ClientDTO>> findByIncomeGreaterThan(
+	public ResponseEntity<Slice<ClientDTO>> findByIncomeGreaterThan(
 			@RequestParam(value = "income", defaultValue = "0") Double income,
 			@RequestParam(value = "page", defaultValue = "0") Integer page,
 			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
 			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
-			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) {
-		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy,
+			@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "includeTotal", defaultValue = "true") Boolean includeTotal,
+			@RequestParam(value = "fields", required = false) String fields,
+			WebRequest webRequest) {
+		if (webRequest.checkNotModified(service.listETag())) {
+			return null;
+		}
+		if (after != null) {
+			return ResponseEntity.ok().body(service.findByIncomeGreaterThanAfter(after, linesPerPage, ClientSort.direction(direction), orderBy, income));
+		}
+		PageRequest pageRequest = ClientSort.pageRequest(page, linesPerPage, direction, orderBy);
+		Set<String> selected = ClientFields.parse(fields);
+		if (selected != null) {
+			return ResponseEntity.ok().body(service.findWithFields(pageRequest, income, null, selected, includeTotal));
+		}
+		if (!includeTotal) {
+			return ResponseEntity.ok().body(service.findByIncomeGreaterThanSliced(pageRequest, income));
+		}
 		Page<ClientDTO> list = service.findByIncomeGreaterThan(pageRequest, income);
 		return ResponseEntity.ok().body(list);
 	}
 
+	/* Mudança
+	 * Novo método: clientes com salário entre min e max (inclusive), sempre
+	 * ordenados por salário e id, a partir do índice de salários em memória
+	 */
+	@GetMapping(value = "/incomeBetween")
+	public ResponseEntity<Page<ClientDTO>> findByIncomeBetween(
+			@RequestParam(value = "min") Double min,
+			@RequestParam(value = "max") Double max,
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction) {
+		PageRequest pageRequest = ClientSort.pageRequest(page, linesPerPage, direction, "income");
+		return ResponseEntity.ok().body(service.findByIncomeBetween(pageRequest, min, max));
+	}
+
+	/* Mudança
+	 * Novo método: os k clientes de maior salário, do maior para o menor
+	 */
+	@GetMapping(value = "/topEarners")
+	public ResponseEntity<List<ClientDTO>> findTopEarners(
+			@RequestParam(value = "k", defaultValue = "10") Integer k) {
+		return ResponseEntity.ok().body(service.findTopEarners(k));
+	}
+
+	/* Mudança
+	 * Novo método: clientes com exatamente este cpf (404 se nenhum); CPFs
+	 * inexistentes são respondidos pelo filtro de Bloom, sem consultar o banco
+	 */
+	@GetMapping(value = "/cpf/{cpf}")
+	public ResponseEntity<List<ClientDTO>> findByCpf(@PathVariable String cpf) {
+		return ResponseEntity.ok().body(service.findByCpf(cpf));
+	}
+
 	/* Mudança
 	 * Novo método: retorna uma lista paginada baseada no cpf com like
+	 * (trechos com 3 ou mais dígitos são buscados pelo índice de trigramas)
 	 */
 	@GetMapping(value = "/cpf/")
-	public ResponseEntity<Page<ClientDTO>> findByCPFLike(
+	public ResponseEntity<Slice<ClientDTO>> findByCPFLike(
 			@RequestParam(value = "cpf", defaultValue = "") String cpf,
 			@RequestParam(value = "page", defaultValue = "0") Integer page,
 			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
 			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
-			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) {
-		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
-		Page<ClientDTO> list = service.findByCpfLike(pageRequest, "%" + cpf + "%");
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy,
+			@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "includeTotal", defaultValue = "true") Boolean includeTotal,
+			@RequestParam(value = "fields", required = false) String fields,
+			WebRequest webRequest) {
+		if (webRequest.checkNotModified(service.listETag())) {
+			return null;
+		}
+		if (after != null) {
+			return ResponseEntity.ok().body(service.findByCpfContainingAfter(after, linesPerPage, ClientSort.direction(direction), orderBy, cpf));
+		}
+		PageRequest pageRequest = ClientSort.pageRequest(page, linesPerPage, direction, orderBy);
+		Set<String> selected = ClientFields.parse(fields);
+		if (selected != null) {
+			return ResponseEntity.ok().body(service.findWithFields(pageRequest, null, cpf, selected, includeTotal));
+		}
+		if (!includeTotal) {
+			return ResponseEntity.ok().body(service.findByCpfContainingSliced(pageRequest, cpf));
+		}
+		Page<ClientDTO> list = service.findByCpfContaining(pageRequest, cpf);
 		return ResponseEntity.ok().body(list);
 	}
 
+	/* Mudança
+	 * Novo método: quantidade, soma, média, mínimo, máximo e histograma dos
+	 * salários (faixas de bucketWidth), com filtros opcionais de filhos e de
+	 * data de nascimento em [birthDateFrom, birthDateTo)
+	 */
+	@GetMapping(value = "/stats/income")
+	public ResponseEntity<IncomeStatsDTO> incomeStats(
+			@RequestParam(value = "children", required = false) Integer children,
+			@RequestParam(value = "birthDateFrom", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Instant birthDateFrom,
+			@RequestParam(value = "birthDateTo", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Instant birthDateTo,
+			@RequestParam(value = "bucketWidth", defaultValue = "1000") Double bucketWidth) {
+		IncomeStatsDTO stats = service.incomeStats(children, birthDateFrom, birthDateTo, bucketWidth);
+		return ResponseEntity.ok().body(stats);
+	}
+
+	/* Mudança
+	 * Novo método: quantis aproximados do salário (padrão p50, p90 e p99) a
+	 * partir do sketch em memória; cada valor tem no máximo o erro relativo
+	 * informado em relativeAccuracy
+	 */
+	@GetMapping(value = "/stats/income/quantiles")
+	public ResponseEntity<IncomeQuantilesDTO> incomeQuantiles(
+			@RequestParam(value = "q", defaultValue = "0.5,0.9,0.99") List<Double> quantiles) {
+		return ResponseEntity.ok().body(service.incomeQuantiles(quantiles));
+	}
+
+	/* Mudança
+	 * Novo método: reconstrói o sketch de quantis a partir da tabela
+	 */
+	@PostMapping(value = "/stats/income/quantiles/rebuild")
+	public ResponseEntity<IncomeQuantilesDTO> rebuildIncomeQuantiles() {
+		return ResponseEntity.ok().body(service.rebuildIncomeQuantiles());
+	}
+
+	/* Mudança
+	 * Novo método: exporta todos os clientes (com filtros opcionais) em NDJSON
+	 * ou CSV, escrevendo cada linha na resposta à medida que vem do banco
+	 */
+	@GetMapping(value = "/export")
+	public void export(
+			@RequestParam(value = "income", required = false) Double income,
+			@RequestParam(value = "cpf", required = false) String cpf,
+			@RequestParam(value = "format", defaultValue = "ndjson") String format,
+			HttpServletResponse response) throws IOException {
+		// antes de escolher o tipo da resposta, para o erro ainda sair em JSON
+		ClientService.checkCpfFragment(cpf);
+		if (format.equalsIgnoreCase("ndjson")) {
+			response.setContentType("application/x-ndjson");
+			response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+			try (Writer writer = responseWriter(response);
+					SequenceWriter lines = objectMapper.writer().withRootValueSeparator("\n").writeValues(writer)) {
+				boolean[] written = new boolean[1];
+				service.export(income, cpf, dto -> {
+					write(lines, dto);
+					written[0] = true;
+				});
+				lines.flush();
+				// o separador só vai entre as linhas; sem nenhuma o corpo fica vazio
+				if (written[0]) {
+					writer.write('\n');
+				}
+			}
+		} else if (format.equalsIgnoreCase("csv")) {
+			response.setContentType("text/csv");
+			response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+			try (Writer writer = responseWriter(response)) {
+				writer.write("id,name,cpf,income,birthDate,children\n");
+				service.export(income, cpf, dto -> writeCsv(writer, dto));
+			}
+		} else {
+			throw new InvalidParameterException("Invalid export format: " + format);
+		}
+	}
+
+	private static Writer responseWriter(HttpServletResponse response) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+	}
+
+	private static void write(SequenceWriter lines, ClientDTO dto) {
+		try {
+			lines.write(dto);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeCsv(Writer writer, ClientDTO dto) {
+		try {
+			writer.write(csv(dto.getId()) + "," + csv(dto.getName()) + "," + csv(dto.getCpf()) + ","
+					+ csv(dto.getIncome()) + "," + csv(dto.getBirthDate()) + "," + csv(dto.getChildren()) + "\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String csv(Object value) {
+		if (value == null) {
+			return "";
+		}
+		String text = value.toString();
+		if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+			return "\"" + text.replace("\"", "\"\"") + "\"";
+		}
+		return text;
+	}
+
 }
@@ -0,0 +1,35 @@
+package com.iftm.client.resources.exceptions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Erro da inserção em lote: além dos campos padrão, os ids já gravados e o
+ * índice (a partir de 0) do bloco que falhou
+ */
+public class BatchError extends StandardError {
+	private static final long serialVersionUID = 1L;
+
+	private List<Long> committedIds = new ArrayList<>();
+	private Integer failedChunk;
+
+	public BatchError() {
+	}
+
+	public List<Long> getCommittedIds() {
+		return committedIds;
+	}
+
+	public void setCommittedIds(List<Long> committedIds) {
+		this.committedIds = committedIds;
+	}
+
+	public Integer getFailedChunk() {
+		return failedChunk;
+	}
+
+	public void setFailedChunk(Integer failedChunk) {
+		this.failedChunk = failedChunk;
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.iftm.client.services;
+
+import com.iftm.client.repositories.ClientChangesRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * ETag fraca das listagens e contador de alterações local. A ETag vem de
+ * tb_client_changes, que a trigger ClientChangeTrigger incrementa a cada
+ * escrita em tb_client: enxerga também outras instâncias e SQL direto, e
+ * muda junto com o commit. O contador local (changes()) só conta as
+ * escritas desta instância e serve à cópia em memória do ClientSnapshotStore
+ * e aos puts do cache de clientes.
+ */
+@Component
+public class ClientChangeCounter {
+
+	private final ClientChangesRepository repository;
+	private final AtomicLong changes = new AtomicLong();
+
+	public ClientChangeCounter(ClientChangesRepository repository) {
+		this.repository = repository;
+	}
+
+	/*
+	 * Dentro de uma transação o contador local só avança após o commit: uma
+	 * escrita desfeita não descarta a cópia em memória.
+	 */
+	public void markChanged() {
+		afterCommit(changes::incrementAndGet);
+	}
+
+	/*
+	 * Uma consulta: a data de criação do banco (um banco recriado não repete
+	 * ETags) e a soma das faixas
+	 */
+	public String etag() {
+		List<Object[]> version = repository.findVersion();
+		Object[] row = version.isEmpty() ? new Object[] { 0L, 0L } : version.get(0);
+		return "W/\"" + row[0] + "-" + row[1] + "\"";
+	}
+
+	public long changes() {
+		return changes.get();
+	}
+
+	static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.iftm.client.services;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.services.exceptions.InvalidParameterException;
+import org.springframework.data.domain.Sort.Direction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Function;
+
+/*
+ * Cursor opaco da paginação keyset: guarda a ordenação usada e o par
+ * (valor de orderBy, id) do último registro devolvido.
+ * Formato antes do Base64: orderBy:direction:id:=valor (o valor vem por último
+ * porque pode conter ':'; sem o '=' o valor é null).
+ */
+public class ClientCursor {
+
+	private static final Map<String, Function<String, Object>> SORTABLE = Map.of(
+			"id", Long::valueOf,
+			"name", value -> value,
+			"cpf", value -> value,
+			"income", Double::valueOf);
+
+	private final String orderBy;
+	private final Direction direction;
+	private final Object value;
+	private final Long id;
+
+	private ClientCursor(String orderBy, Direction direction, Object value, Long id) {
+		this.orderBy = orderBy;
+		this.direction = direction;
+		this.value = value;
+		this.id = id;
+	}
+
+	public static ClientCursor start(String orderBy, Direction direction) {
+		if (!ClientSort.isSortable(orderBy)) {
+			throw new InvalidParameterException("Invalid orderBy for cursor pagination: " + orderBy);
+		}
+		return new ClientCursor(orderBy, direction, null, null);
+	}
+
+	public static ClientCursor decode(String token, String orderBy, Direction direction) {
+		ClientCursor start = start(orderBy, direction);
+		if (token == null || token.isEmpty()) {
+			return start;
+		}
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 4);
+			if (parts.length != 4 || !parts[0].equals(orderBy) || Direction.fromString(parts[1]) != direction) {
+				throw new InvalidParameterException("Cursor does not match orderBy/direction");
+			}
+			Object value = parts[3].startsWith("=") ? SORTABLE.get(orderBy).apply(parts[3].substring(1)) : null;
+			return new ClientCursor(orderBy, direction, value, Long.valueOf(parts[2]));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidParameterException("Invalid cursor");
+		}
+	}
+
+	public ClientCursor next(ClientDTO last) {
+		return new ClientCursor(orderBy, direction, valueOf(last), last.getId());
+	}
+
+	public String encode() {
+		String raw = orderBy + ":" + direction + ":" + id + ":" + (value == null ? "" : "=" + value);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private Object valueOf(ClientDTO dto) {
+		switch (orderBy) {
+			case "id": return dto.getId();
+			case "name": return dto.getName();
+			case "cpf": return dto.getCpf();
+			default: return dto.getIncome();
+		}
+	}
+
+	public boolean isStart() {
+		return id == null;
+	}
+
+	public String getOrderBy() {
+		return orderBy;
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.iftm.client.services;
+
+import com.iftm.client.services.exceptions.InvalidParameterException;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Campos que podem ser pedidos em fields= (sparse fieldsets). O nome do
+ * campo do ClientDTO é também o atributo de Client usado no SELECT, por isso
+ * só nomes desta lista entram na consulta.
+ */
+public final class ClientFields {
+
+	public static final List<String> ALL = List.of("id", "name", "cpf", "income", "birthDate", "children", "version");
+
+	private ClientFields() {
+	}
+
+	/*
+	 * "id,name" -> [id, name]; nulo ou vazio significa todos os campos (null)
+	 */
+	public static Set<String> parse(String fields) {
+		if (fields == null || fields.isBlank()) {
+			return null;
+		}
+		Set<String> parsed = new LinkedHashSet<>();
+		for (String field : fields.split(",")) {
+			String name = field.trim();
+			if (!ALL.contains(name)) {
+				throw new InvalidParameterException("Invalid field: " + name + " (accepted: " + String.join(", ", ALL) + ")");
+			}
+			parsed.add(name);
+		}
+		return parsed;
+	}
+
+}
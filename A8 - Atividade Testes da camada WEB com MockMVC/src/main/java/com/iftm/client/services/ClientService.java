@@ -1,20 +1,57 @@
 package com.iftm.client.services;
 
+import com.iftm.client.config.CacheConfig;
+import com.iftm.client.dto.ClientBatchDTO;
+import com.iftm.client.dto.ClientBulkDeleteDTO;
+import com.iftm.client.dto.ClientBulkDeleteResultDTO;
 import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.CursorSlice;
+import com.iftm.client.dto.IncomeBucketDTO;
+import com.iftm.client.dto.IncomeQuantilesDTO;
+import com.iftm.client.dto.IncomeStatsDTO;
 import com.iftm.client.entities.Client;
 import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.repositories.CpfTrigrams;
 import com.iftm.client.services.exceptions.DatabaseException;
+import com.iftm.client.services.exceptions.InvalidParameterException;
+import com.iftm.client.services.exceptions.PartialBatchException;
 import com.iftm.client.services.exceptions.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceContext;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ClientService {
@@ -22,48 +59,331 @@ public class ClientService {
 	@Autowired
 	private ClientRepository repository;
 
+	@Autowired
+	private ClientChangeCounter changeCounter;
+
+	@Autowired
+	private IncomeTracker incomeTracker;
+
+	@Autowired
+	private CpfTracker cpfTracker;
+
+	@Autowired
+	private ParallelPageQueries pageQueries;
+
+	// só existe com client.snapshot.enabled=true
+	@Autowired(required = false)
+	private ClientSnapshotStore snapshots;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private static final int TOP_EARNERS_LIMIT = 1000;
+
+	@Value("${client.export.fetch-size:500}")
+	private int exportFetchSize;
+
+	@Value("${client.batch.chunk-size:1000}")
+	private int batchChunkSize;
+
+	@Value("${client.bulk-delete.chunk-size:500}")
+	private int deleteChunkSize;
+
+	@Value("${client.multi-get.chunk-size:500}")
+	private int multiGetChunkSize;
+
+	@Value("${client.multi-get.max-ids:1000}")
+	private int multiGetMaxIds;
+
+	@Value("${client.income-stats.max-buckets:1000}")
+	private int incomeStatsMaxBuckets;
+
+	/*
+	 * ETag fraca das listagens: muda sempre que algum cliente é gravado
+	 */
+	public String listETag() {
+		return changeCounter.etag();
+	}
+
+	/*
+	 * Com client.page.parallel-count=true as listagens paginadas executam o
+	 * conteúdo e o COUNT ao mesmo tempo (ParallelPageQueries)
+	 */
 	@Transactional(readOnly = true)
 	public Page<ClientDTO> findAllPaged(PageRequest pageRequest) {
-		Page<Client> list = repository.findAll(pageRequest);
-		return list.map(x -> new ClientDTO(x));
+		if (pageQueries.isEnabled()) {
+			return pageQueries.page("findAllPaged", pageRequest,
+					() -> repository.findSliceBy(pageRequest), repository::count);
+		}
+		return repository.findAllDTO(pageRequest);
 	}
 
+	/*
+	 * Ordenadas por salário, as buscas por faixa de salário saem do
+	 * IncomeIndex: ele dá o total e os ids da página, e o banco só busca esses
+	 * ids (uma consulta, sem COUNT nem OFFSET). Outras ordenações vão ao banco.
+	 */
 	@Transactional(readOnly = true)
 	public Page<ClientDTO> findByIncome(PageRequest pageRequest, Double income) {
-		Page<Client> list = repository.findByIncome(income, pageRequest);
-		return list.map(x -> new ClientDTO(x));
+		Direction direction = incomeSortDirection(pageRequest);
+		if (direction != null) {
+			return incomePage(pageRequest, incomeTracker.between(income, income, direction.isAscending(),
+					pageRequest.getOffset(), pageRequest.getPageSize()));
+		}
+		return repository.findDTOByIncome(income, pageRequest);
+	}
+
+	@Transactional(readOnly = true)
+	public Page<ClientDTO> findByIncomeBetween(PageRequest pageRequest, Double min, Double max) {
+		Direction direction = incomeSortDirection(pageRequest);
+		if (direction == null) {
+			throw new InvalidParameterException("Income ranges are only sorted by income");
+		}
+		return incomePage(pageRequest, incomeTracker.between(min, max, direction.isAscending(),
+				pageRequest.getOffset(), pageRequest.getPageSize()));
+	}
+
+	/*
+	 * Os k maiores salários (empate pelo maior id)
+	 */
+	@Transactional(readOnly = true)
+	public List<ClientDTO> findTopEarners(Integer k) {
+		if (k == null || k < 1 || k > TOP_EARNERS_LIMIT) {
+			throw new InvalidParameterException("k must be between 1 and " + TOP_EARNERS_LIMIT);
+		}
+		return findAllByIdInOrder(incomeTracker.top(k));
+	}
+
+	/*
+	 * Listagens com fields= (sparse fieldsets): o SELECT traz só as colunas
+	 * pedidas. Filtros nulos são ignorados; cpf é um trecho do CPF. A busca por
+	 * salário ordenada por salário continua no IncomeIndex, que já lê do banco
+	 * só os ids da página.
+	 */
+	@Transactional(readOnly = true)
+	public Slice<ClientDTO> findWithFields(PageRequest pageRequest, Double income, String cpf, Set<String> fields,
+			boolean includeTotal) {
+		checkCpfFragment(cpf);
+		if (income != null && incomeSortDirection(pageRequest) != null) {
+			return includeTotal ? findByIncomeGreaterThan(pageRequest, income)
+					: findByIncomeGreaterThanSliced(pageRequest, income);
+		}
+		Slice<ClientDTO> slice = repository.findSliceWithFields(fields, income, cpf, pageRequest);
+		if (!includeTotal) {
+			return slice;
+		}
+		return PageableExecutionUtils.getPage(slice.getContent(), pageRequest, () -> repository.countFiltered(income, cpf));
 	}
 
+	/*
+	 * Versões sem total (Slice): evitam o SELECT COUNT de cada página
+	 */
+	@Transactional(readOnly = true)
+	public Slice<ClientDTO> findAllSliced(PageRequest pageRequest) {
+		return repository.findSliceBy(pageRequest);
+	}
+
+	@Transactional(readOnly = true)
+	public Slice<ClientDTO> findByIncomeSliced(PageRequest pageRequest, Double income) {
+		if (incomeSortDirection(pageRequest) != null) {
+			Page<ClientDTO> page = findByIncome(pageRequest, income);
+			return new SliceImpl<>(page.getContent(), pageRequest, page.hasNext());
+		}
+		return repository.findSliceByIncome(income, pageRequest);
+	}
+
+	@Transactional(readOnly = true)
+	public Slice<ClientDTO> findByIncomeGreaterThanSliced(PageRequest pageRequest, Double income) {
+		if (incomeSortDirection(pageRequest) != null) {
+			Page<ClientDTO> page = findByIncomeGreaterThan(pageRequest, income);
+			return new SliceImpl<>(page.getContent(), pageRequest, page.hasNext());
+		}
+		return repository.findSliceByIncomeGreaterThan(income, pageRequest);
+	}
 
 	@Transactional(readOnly = true)
+	public Slice<ClientDTO> findByCpfContainingSliced(PageRequest pageRequest, String cpf) {
+		checkCpfFragment(cpf);
+		Set<String> trigrams = CpfTrigrams.of(cpf);
+		if (trigrams.isEmpty()) {
+			return repository.findSliceByCpfLike("%" + cpf + "%", pageRequest);
+		}
+		return repository.findSliceByCpfContaining("%" + cpf + "%", trigrams, trigrams.size(), pageRequest);
+	}
+
+	/*
+	 * Sem transação: com a cópia em arquivo atualizada a busca não usa
+	 * conexão nem consulta o banco (nem para responder 404). O cache é
+	 * preenchido aqui, e não por @Cacheable, para o put passar por cachePut()
+	 */
 	public ClientDTO findById(Long id) {
-		Optional<Client> obj = repository.findById(id);
-		Client entity = obj.orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
-		return new ClientDTO(entity);
+		Cache cache = cacheManager.getCache(CacheConfig.CLIENTS);
+		ClientDTO cached = cache != null ? cache.get(id, ClientDTO.class) : null;
+		if (cached != null) {
+			return cached;
+		}
+		long changes = changeCounter.changes();
+		ClientSnapshot snapshot = currentSnapshot();
+		Optional<ClientDTO> obj = snapshot != null ? snapshot.findById(id) : repository.findDTOById(id);
+		ClientDTO dto = obj.orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
+		cachePut(cache, changes, dto);
+		return dto;
+	}
+
+	/*
+	 * Vários clientes por id de uma vez: o que estiver na cópia em arquivo ou
+	 * no cache sai dali e o resto vem com WHERE id IN em blocos de
+	 * client.multi-get.chunk-size ids. Ids repetidos aparecem uma vez, na
+	 * ordem da primeira ocorrência; os inexistentes vão para missing.
+	 * Sem transação, como o findById: se tudo estiver em memória nenhuma
+	 * conexão é usada.
+	 */
+	public ClientBatchDTO findAllById(List<Long> ids) {
+		if (ids == null || ids.isEmpty() || ids.size() > multiGetMaxIds || ids.stream().anyMatch(Objects::isNull)) {
+			throw new InvalidParameterException("ids must have between 1 and " + multiGetMaxIds + " ids");
+		}
+		Set<Long> requested = new LinkedHashSet<>(ids);
+		Map<Long, ClientDTO> found = new HashMap<>();
+		long changes = changeCounter.changes();
+		ClientSnapshot snapshot = currentSnapshot();
+		Cache cache = cacheManager.getCache(CacheConfig.CLIENTS);
+		List<Long> pending = new ArrayList<>();
+		for (Long id : requested) {
+			ClientDTO dto = snapshot != null ? snapshot.findById(id).orElse(null)
+					: cache != null ? cache.get(id, ClientDTO.class) : null;
+			if (dto != null) {
+				found.put(id, dto);
+			} else if (snapshot == null) {
+				pending.add(id);
+			}
+		}
+		for (ClientDTO dto : findAllByIdIn(pending).values()) {
+			found.put(dto.getId(), dto);
+			cachePut(cache, changes, dto);
+		}
+		ClientBatchDTO result = new ClientBatchDTO();
+		for (Long id : requested) {
+			ClientDTO dto = found.get(id);
+			if (dto != null) {
+				result.getClients().add(dto);
+			} else {
+				result.getMissing().add(id);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Busca exata por CPF (pode haver mais de um cliente). Um CPF que o filtro
+	 * de Bloom não conhece é respondido com 404 sem consultar o banco.
+	 */
+	public List<ClientDTO> findByCpf(String cpf) {
+		if (!cpfTracker.mightContain(cpf)) {
+			throw new ResourceNotFoundException("Entity not found");
+		}
+		List<ClientDTO> list = repository.findDTOByCpf(cpf);
+		if (list.isEmpty()) {
+			cpfTracker.falsePositive();
+			throw new ResourceNotFoundException("Entity not found");
+		}
+		return list;
 	}
 
+	@CachePut(cacheNames = CacheConfig.CLIENTS, key = "#result.id")
 	@Transactional
 	public ClientDTO insert(ClientDTO dto) {
 		Client entity = dto.toEntity();
 		entity = repository.save(entity);
+		changeCounter.markChanged();
 		return new ClientDTO(entity);
 	}
 	
+	/*
+	 * Inserção em lote: uma transação por bloco de client.batch.chunk-size
+	 * clientes, com os INSERTs agrupados em lotes JDBC. Se um bloco falhar,
+	 * os blocos anteriores continuam gravados e a PartialBatchException leva
+	 * os ids deles e o índice do bloco que falhou.
+	 */
+	public List<Long> insertAll(List<ClientDTO> dtos) {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		List<Long> ids = new ArrayList<>(dtos.size());
+		for (int start = 0; start < dtos.size(); start += batchChunkSize) {
+			List<ClientDTO> chunk = dtos.subList(start, Math.min(start + batchChunkSize, dtos.size()));
+			try {
+				ids.addAll(transaction.execute(status -> insertChunk(chunk)));
+				changeCounter.markChanged();
+			} catch (DataIntegrityViolationException e) {
+				int failedChunk = start / batchChunkSize;
+				throw new PartialBatchException("Integrity violation in chunk " + failedChunk + " (clients "
+						+ start + " to " + (start + chunk.size() - 1) + ")", ids, failedChunk);
+			}
+		}
+		return ids;
+	}
+
+	private List<Long> insertChunk(List<ClientDTO> chunk) {
+		List<Client> entities = new ArrayList<>(chunk.size());
+		for (ClientDTO dto : chunk) {
+			Client entity = dto.toEntity();
+			// id nulo garante persist (com id preenchido o save faria merge e um SELECT por linha)
+			entity.setId(null);
+			entities.add(entity);
+		}
+		List<Long> ids = repository.saveAll(entities).stream().map(Client::getId).collect(Collectors.toList());
+		repository.flush();
+		entityManager.clear();
+		return ids;
+	}
+
+	@CacheEvict(cacheNames = CacheConfig.CLIENTS, key = "#id")
 	@Transactional
 	public ClientDTO update(Long id, ClientDTO dto) {
 		try {
 			Client entity = repository.getOne(id);
 			updateData(entity, dto);
 			entity = repository.save(entity);
+			// flush para o DTO devolvido já trazer a versão incrementada
+			repository.flush();
+			changeCounter.markChanged();
 			return new ClientDTO(entity);
 		} catch (EntityNotFoundException e) {
 			throw new ResourceNotFoundException("Id not found " + id);
 		}
 	}
 	
+	/*
+	 * Atualização parcial: aplica só os campos informados (não nulos) em um
+	 * único UPDATE, sem ler o cliente antes; o 404 vem da contagem de linhas
+	 */
+	@CacheEvict(cacheNames = CacheConfig.CLIENTS, key = "#id")
+	@Transactional
+	public void patch(Long id, ClientDTO dto) {
+		if (dto.getName() == null && dto.getCpf() == null && dto.getIncome() == null
+				&& dto.getBirthDate() == null && dto.getChildren() == null) {
+			throw new InvalidParameterException("No fields to update");
+		}
+		// UPDATE em massa não passa pelo Hibernate: o CPF novo entra no filtro aqui (e após o commit)
+		cpfTracker.add(dto.getCpf());
+		if (repository.updatePartial(id, dto) == 0) {
+			throw new ResourceNotFoundException("Id not found " + id);
+		}
+		changeCounter.markChanged();
+		if (dto.getIncome() != null) {
+			incomeTracker.changed(id, dto.getIncome());
+		}
+	}
+
+	@CacheEvict(cacheNames = CacheConfig.CLIENTS, key = "#id")
 	public void delete(Long id) {
 		try {
 			repository.deleteById(id);
+			changeCounter.markChanged();
 		} catch (EmptyResultDataAccessException e) {
 			throw new ResourceNotFoundException("Id not found " + id);
 		} catch (DataIntegrityViolationException e) {
@@ -71,6 +391,84 @@ public class ClientService {
 		}
 	}
 
+	/*
+	 * O CPF não é chave do cache, então todas as entradas são descartadas.
+	 * Um CPF ausente do filtro de Bloom não gera DELETE.
+	 */
+	@CacheEvict(cacheNames = CacheConfig.CLIENTS, allEntries = true)
+	@Transactional
+	public void deleteByCpf(String cpf) {
+		if (!cpfTracker.mightContain(cpf)) {
+			return;
+		}
+		Map<Long, Double> incomes = new HashMap<>();
+		repository.findIncomesByCpfIn(List.of(cpf)).forEach(row -> incomes.put((Long) row[1], (Double) row[2]));
+		if (incomes.isEmpty()) {
+			cpfTracker.falsePositive();
+			return;
+		}
+		int deleted = repository.deleteClientByCPF(cpf);
+		changeCounter.markChanged();
+		removedIncomes(incomes, deleted);
+	}
+
+	/*
+	 * Exclusão em massa por ids e/ou cpfs com DELETE ... WHERE IN em blocos de
+	 * client.bulk-delete.chunk-size chaves, sem carregar nenhuma entidade
+	 */
+	@CacheEvict(cacheNames = CacheConfig.CLIENTS, allEntries = true)
+	@Transactional
+	public ClientBulkDeleteResultDTO deleteAll(ClientBulkDeleteDTO dto) {
+		ClientBulkDeleteResultDTO result = new ClientBulkDeleteResultDTO();
+		// id -> salário das linhas apagadas, para o índice de salários
+		Map<Long, Double> incomes = new HashMap<>();
+		long deleted = 0;
+		List<Long> ids = dto.getIds().stream().distinct().collect(Collectors.toList());
+		for (int start = 0; start < ids.size(); start += deleteChunkSize) {
+			List<Long> chunk = ids.subList(start, Math.min(start + deleteChunkSize, ids.size()));
+			Set<Long> existing = new HashSet<>();
+			for (Object[] row : repository.findIncomesByIdIn(chunk)) {
+				existing.add((Long) row[0]);
+				incomes.put((Long) row[0], (Double) row[1]);
+			}
+			if (!existing.isEmpty()) {
+				deleted += repository.deleteByIdIn(existing);
+			}
+			chunk.forEach(id -> result.getIds().put(id, existing.contains(id) ? 1 : 0));
+		}
+		// CPFs que o filtro de Bloom não conhece já saem com 0, sem entrar nas consultas
+		List<String> cpfs = dto.getCpfs().stream().distinct().collect(Collectors.toList());
+		for (int start = 0; start < cpfs.size(); start += deleteChunkSize) {
+			List<String> chunk = cpfs.subList(start, Math.min(start + deleteChunkSize, cpfs.size()));
+			List<String> candidates = chunk.stream().filter(cpfTracker::mightContain).collect(Collectors.toList());
+			Map<String, Integer> counts = new HashMap<>();
+			if (!candidates.isEmpty()) {
+				for (Object[] row : repository.findIncomesByCpfIn(candidates)) {
+					counts.merge((String) row[0], 1, Integer::sum);
+					incomes.put((Long) row[1], (Double) row[2]);
+				}
+			}
+			if (!counts.isEmpty()) {
+				deleted += repository.deleteByCpfIn(counts.keySet());
+			}
+			chunk.forEach(cpf -> result.getCpfs().put(cpf, counts.getOrDefault(cpf, 0)));
+		}
+		changeCounter.markChanged();
+		removedIncomes(incomes, deleted);
+		return result;
+	}
+
+	/*
+	 * Tira do índice de salários as linhas lidas antes do DELETE; se o DELETE
+	 * apagou outras (gravadas entre a leitura e ele), o índice é refeito
+	 */
+	private void removedIncomes(Map<Long, Double> incomes, long deleted) {
+		incomeTracker.removed(incomes);
+		if (deleted != incomes.size()) {
+			incomeTracker.invalidate();
+		}
+	}
+
 	private void updateData(Client entity, ClientDTO dto) {
 		entity.setName(dto.getName());
 		entity.setCpf(dto.getCpf());
@@ -84,14 +482,236 @@ public class ClientService {
 	 */
 	@Transactional(readOnly = true)
 	public Page<ClientDTO> findByIncomeGreaterThan(PageRequest pageRequest, Double income) {
-		Page<Client> list = repository.findByIncomeGreaterThan(income, pageRequest);
-		return list.map(x -> new ClientDTO(new Client(x.getId(), x.getName(), x.getCpf(), x.getIncome(), x.getBirthDate(), x.getChildren())));
+		Direction direction = incomeSortDirection(pageRequest);
+		if (direction != null) {
+			return incomePage(pageRequest, incomeTracker.greaterThan(income, direction.isAscending(),
+					pageRequest.getOffset(), pageRequest.getPageSize()));
+		}
+		if (pageQueries.isEnabled()) {
+			return pageQueries.page("findByIncomeGreaterThan", pageRequest,
+					() -> repository.findSliceByIncomeGreaterThan(income, pageRequest),
+					() -> repository.countByIncomeGreaterThan(income));
+		}
+		return repository.findDTOByIncomeGreaterThan(income, pageRequest);
+	}
+
+	/*
+	 * Direção da página se ela está ordenada exatamente como o IncomeIndex
+	 * (income, id), senão null
+	 */
+	private static Direction incomeSortDirection(PageRequest pageRequest) {
+		for (Direction direction : Direction.values()) {
+			if (pageRequest.getSort().equals(ClientSort.sort(direction, "income"))) {
+				return direction;
+			}
+		}
+		return null;
+	}
+
+	private Page<ClientDTO> incomePage(PageRequest pageRequest, IncomeTracker.IncomeIds ids) {
+		return new PageImpl<>(findAllByIdInOrder(ids.getIds()), pageRequest, ids.getTotal());
+	}
+
+	/*
+	 * Uma consulta por IN e a ordem dos ids restaurada aqui; um id apagado
+	 * entre o índice e a consulta só deixa de aparecer
+	 */
+	private List<ClientDTO> findAllByIdInOrder(long[] ids) {
+		if (ids.length == 0) {
+			return new ArrayList<>();
+		}
+		List<Long> keys = new ArrayList<>(ids.length);
+		for (long id : ids) {
+			keys.add(id);
+		}
+		Map<Long, ClientDTO> found = findAllByIdIn(keys);
+		List<ClientDTO> ordered = new ArrayList<>(ids.length);
+		for (Long id : keys) {
+			ClientDTO dto = found.get(id);
+			if (dto != null) {
+				ordered.add(dto);
+			}
+		}
+		return ordered;
+	}
+
+	/*
+	 * WHERE id IN em blocos de client.multi-get.chunk-size ids, para não
+	 * passar do limite de parâmetros do banco
+	 */
+	private Map<Long, ClientDTO> findAllByIdIn(List<Long> ids) {
+		Map<Long, ClientDTO> found = new HashMap<>();
+		for (int start = 0; start < ids.size(); start += multiGetChunkSize) {
+			List<Long> chunk = ids.subList(start, Math.min(start + multiGetChunkSize, ids.size()));
+			for (ClientDTO dto : repository.findDTOByIdIn(chunk)) {
+				found.put(dto.getId(), dto);
+			}
+		}
+		return found;
 	}
 
 	@Transactional(readOnly = true)
 	public Page<ClientDTO> findByCpfLike(PageRequest pageRequest, String cpf) {
-		Page<Client> list = repository.findByCpfLike(cpf, pageRequest);
-		return list.map(x -> new ClientDTO(x));
+		if (pageQueries.isEnabled()) {
+			return pageQueries.page("findByCpfLike", pageRequest,
+					() -> repository.findSliceByCpfLike(cpf, pageRequest),
+					() -> repository.countByCpfLike(cpf));
+		}
+		return repository.findDTOByCpfLike(cpf, pageRequest);
+	}
+
+	/*
+	 * Busca por trecho do CPF: com 3 ou mais caracteres usa o índice de
+	 * trigramas em vez de um LIKE '%cpf%' que varre a tabela inteira
+	 */
+	@Transactional(readOnly = true)
+	public Page<ClientDTO> findByCpfContaining(PageRequest pageRequest, String cpf) {
+		checkCpfFragment(cpf);
+		Set<String> trigrams = CpfTrigrams.of(cpf);
+		if (trigrams.isEmpty()) {
+			return findByCpfLike(pageRequest, "%" + cpf + "%");
+		}
+		if (pageQueries.isEnabled()) {
+			return pageQueries.page("findByCpfContaining", pageRequest,
+					() -> repository.findSliceByCpfContaining("%" + cpf + "%", trigrams, trigrams.size(), pageRequest),
+					() -> repository.countByCpfContaining("%" + cpf + "%", trigrams, trigrams.size()));
+		}
+		return repository.findDTOByCpfContaining("%" + cpf + "%", trigrams, trigrams.size(), pageRequest);
+	}
+
+	/*
+	 * Paginação por cursor (keyset): o custo de cada página não depende da
+	 * profundidade, pois a consulta parte do último (orderBy, id) devolvido.
+	 */
+	@Transactional(readOnly = true)
+	public CursorSlice<ClientDTO> findAllAfter(String after, Integer linesPerPage, Direction direction, String orderBy) {
+		return findAfter(null, null, after, linesPerPage, direction, orderBy);
+	}
+
+	@Transactional(readOnly = true)
+	public CursorSlice<ClientDTO> findByIncomeGreaterThanAfter(String after, Integer linesPerPage, Direction direction, String orderBy, Double income) {
+		return findAfter(income, null, after, linesPerPage, direction, orderBy);
+	}
+
+	@Transactional(readOnly = true)
+	public CursorSlice<ClientDTO> findByCpfContainingAfter(String after, Integer linesPerPage, Direction direction, String orderBy, String cpf) {
+		checkCpfFragment(cpf);
+		return findAfter(null, cpf, after, linesPerPage, direction, orderBy);
+	}
+
+	/*
+	 * O trecho do CPF é procurado literalmente: os trigramas tratam '%' e '_'
+	 * como caracteres comuns, e o LIKE que confirma a busca como curingas, então
+	 * com eles as duas etapas discordariam
+	 */
+	public static void checkCpfFragment(String cpf) {
+		if (cpf != null && (cpf.indexOf('%') >= 0 || cpf.indexOf('_') >= 0)) {
+			throw new InvalidParameterException("Invalid cpf: '%' and '_' are not accepted in a CPF fragment");
+		}
+	}
+
+	private CursorSlice<ClientDTO> findAfter(Double income, String cpf, String after, Integer linesPerPage, Direction direction, String orderBy) {
+		ClientCursor cursor = ClientCursor.decode(after, orderBy, direction);
+		// busca um registro a mais só para saber se existe próxima página
+		List<ClientDTO> list = repository.findAfter(income, cpf, orderBy, direction,
+				cursor.getValue(), cursor.getId(), linesPerPage + 1);
+		boolean hasNext = list.size() > linesPerPage;
+		List<ClientDTO> content = hasNext ? list.subList(0, linesPerPage) : list;
+		String nextCursor = hasNext ? cursor.next(content.get(content.size() - 1)).encode() : null;
+		PageRequest pageRequest = PageRequest.of(0, linesPerPage, ClientSort.sort(direction, orderBy));
+		return new CursorSlice<>(content, pageRequest, hasNext, nextCursor);
+	}
+
+	/*
+	 * Quantis aproximados do salário a partir do sketch em memória, sem
+	 * consultar o banco (erro relativo em client.income-sketch.relative-accuracy)
+	 */
+	public IncomeQuantilesDTO incomeQuantiles(List<Double> quantiles) {
+		for (Double q : quantiles) {
+			if (q == null || q < 0 || q > 1) {
+				throw new InvalidParameterException("Quantiles must be between 0 and 1");
+			}
+		}
+		return incomeTracker.quantiles(quantiles);
+	}
+
+	public IncomeQuantilesDTO rebuildIncomeQuantiles() {
+		return incomeTracker.rebuild();
+	}
+
+	/*
+	 * Estatísticas de salário calculadas no banco: uma consulta agregada por
+	 * faixa de bucketWidth, somada aqui para os totais, sem carregar clientes
+	 */
+	@Transactional(readOnly = true)
+	public IncomeStatsDTO incomeStats(Integer children, Instant birthDateFrom, Instant birthDateTo, Double bucketWidth) {
+		if (bucketWidth == null || !(bucketWidth > 0) || bucketWidth.isInfinite()) {
+			throw new InvalidParameterException("bucketWidth must be a positive number");
+		}
+		IncomeStatsDTO stats = new IncomeStatsDTO();
+		stats.setBucketWidth(bucketWidth);
+		// só faixas com clientes voltam; pedir uma a mais que o limite basta para recusar
+		List<Object[]> rows = repository.incomeHistogram(children, birthDateFrom, birthDateTo, bucketWidth,
+				incomeStatsMaxBuckets + 1);
+		if (rows.size() > incomeStatsMaxBuckets) {
+			throw new InvalidParameterException("bucketWidth " + bucketWidth + " produces more than "
+					+ incomeStatsMaxBuckets + " non-empty buckets");
+		}
+		for (Object[] row : rows) {
+			double bucket = ((Number) row[0]).doubleValue();
+			long count = ((Number) row[1]).longValue();
+			double min = ((Number) row[3]).doubleValue();
+			double max = ((Number) row[4]).doubleValue();
+			stats.getBuckets().add(new IncomeBucketDTO(bucket * bucketWidth, (bucket + 1) * bucketWidth, count));
+			stats.setCount(stats.getCount() + count);
+			stats.setSum(stats.getSum() + ((Number) row[2]).doubleValue());
+			stats.setMin(stats.getMin() == null ? min : Math.min(stats.getMin(), min));
+			stats.setMax(stats.getMax() == null ? max : Math.max(stats.getMax(), max));
+		}
+		if (stats.getCount() > 0) {
+			stats.setAverage(stats.getSum() / stats.getCount());
+		}
+		return stats;
+	}
+
+	/*
+	 * Exportação completa: cada cliente é entregue ao consumidor e desanexado
+	 * do EntityManager em seguida, então a memória não cresce com a tabela.
+	 * Com a cópia em arquivo atualizada a varredura é feita nela, sem banco.
+	 */
+	public void export(Double income, String cpf, Consumer<ClientDTO> action) {
+		checkCpfFragment(cpf);
+		ClientSnapshot snapshot = currentSnapshot();
+		if (snapshot != null) {
+			snapshot.forEach(income, cpf, action);
+			return;
+		}
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+		transaction.executeWithoutResult(status -> {
+			try (Stream<Client> stream = repository.streamAll(income, cpf, exportFetchSize)) {
+				stream.forEach(x -> {
+					action.accept(new ClientDTO(x));
+					entityManager.detach(x);
+				});
+			}
+		});
+	}
+
+	/*
+	 * Põe no cache o que foi lido sem transação, a não ser que uma escrita
+	 * tenha terminado desde changes (lido antes da consulta). O contador
+	 * avança no afterCommit antes do evict da escrita, então uma leitura que
+	 * viu a linha antiga nunca a devolve ao cache depois do evict.
+	 */
+	private void cachePut(Cache cache, long changes, ClientDTO dto) {
+		if (cache != null && changeCounter.changes() == changes) {
+			cache.put(dto.getId(), dto);
+		}
+	}
+
+	private ClientSnapshot currentSnapshot() {
+		return snapshots == null ? null : snapshots.current();
 	}
 
 }
@@ -0,0 +1,328 @@
+package com.iftm.client.services;
+
+import com.iftm.client.dto.ClientDTO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/*
+ * Cópia binária de tb_client num arquivo mapeado em memória (fora do heap).
+ * Os registros têm tamanho fixo e estão ordenados por id, então o próprio
+ * arquivo é o índice id -> offset: a busca é binária sobre os ids gravados.
+ * Só o registro encontrado vira ClientDTO; as varreduras leem os campos
+ * direto do mapeamento e criam objetos apenas para as linhas aceitas.
+ *
+ * Layout: cabeçalho de HEADER_SIZE bytes e depois os registros com
+ * id, version, income, birthDate (segundos e nanos), children, flags de
+ * nulos, tamanhos de cpf e name e os caracteres (UTF-16) com largura fixa
+ * igual ao maior valor da tabela no momento da gravação.
+ * Arquivos acima de 2 GB são mapeados em segmentos.
+ */
+public class ClientSnapshot {
+
+	static final int HEADER_SIZE = 64;
+	private static final int MAGIC = 0x434c534e; // "CLSN"
+	private static final int FORMAT = 1;
+	private static final int SEGMENT_BYTES = 1 << 30;
+
+	private static final int ID = 0;
+	private static final int VERSION = 8;
+	private static final int INCOME = 16;
+	private static final int BIRTH_SECONDS = 24;
+	private static final int BIRTH_NANOS = 32;
+	private static final int CHILDREN = 36;
+	private static final int FLAGS = 40;
+	private static final int CPF_LENGTH = 42;
+	private static final int NAME_LENGTH = 44;
+	private static final int TEXT = 46;
+
+	private static final int HAS_NAME = 1;
+	private static final int HAS_CPF = 2;
+	private static final int HAS_INCOME = 4;
+	private static final int HAS_BIRTH_DATE = 8;
+	private static final int HAS_CHILDREN = 16;
+	private static final int HAS_VERSION = 32;
+
+	private final ByteBuffer[] segments;
+	private final int recordSize;
+	private final int recordsPerSegment;
+	private final int cpfWidth;
+	private final long count;
+	private final long changes;
+	private final long createdAt;
+
+	private ClientSnapshot(ByteBuffer[] segments, int recordSize, int cpfWidth, long count, long changes, long createdAt) {
+		this.segments = segments;
+		this.recordSize = recordSize;
+		this.recordsPerSegment = SEGMENT_BYTES / recordSize;
+		this.cpfWidth = cpfWidth;
+		this.count = count;
+		this.changes = changes;
+		this.createdAt = createdAt;
+	}
+
+	public static ClientSnapshot open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT) {
+				throw new IOException("Not a client snapshot: " + file);
+			}
+			int recordSize = header.getInt(8);
+			int cpfWidth = header.getInt(12);
+			long count = header.getLong(24);
+			long perSegment = SEGMENT_BYTES / recordSize;
+			ByteBuffer[] segments = new ByteBuffer[(int) ((count + perSegment - 1) / perSegment)];
+			for (int i = 0; i < segments.length; i++) {
+				long first = i * perSegment;
+				long records = Math.min(perSegment, count - first);
+				// o mapeamento continua válido depois que o canal é fechado
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * recordSize, records * recordSize);
+			}
+			return new ClientSnapshot(segments, recordSize, cpfWidth, count, header.getLong(32), header.getLong(40));
+		}
+	}
+
+	/*
+	 * Busca binária pelo id; leituras absolutas no buffer, sem alterar a
+	 * posição, podem ser feitas por várias threads ao mesmo tempo
+	 */
+	public Optional<ClientDTO> findById(long id) {
+		long low = 0;
+		long high = count - 1;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			long current = segment(middle).getLong(offset(middle) + ID);
+			if (current < id) {
+				low = middle + 1;
+			} else if (current > id) {
+				high = middle - 1;
+			} else {
+				return Optional.of(read(middle));
+			}
+		}
+		return Optional.empty();
+	}
+
+	/*
+	 * Varredura em ordem de id com os mesmos filtros da exportação
+	 * (income > incomeGreaterThan e cpf contendo cpfContains, ambos opcionais)
+	 */
+	public void forEach(Double incomeGreaterThan, String cpfContains, Consumer<ClientDTO> action) {
+		for (long i = 0; i < count; i++) {
+			ByteBuffer buffer = segment(i);
+			int offset = offset(i);
+			byte flags = buffer.get(offset + FLAGS);
+			if (incomeGreaterThan != null
+					&& ((flags & HAS_INCOME) == 0 || !(buffer.getDouble(offset + INCOME) > incomeGreaterThan))) {
+				continue;
+			}
+			if (cpfContains != null
+					&& ((flags & HAS_CPF) == 0 || !contains(buffer, offset + TEXT, buffer.getShort(offset + CPF_LENGTH), cpfContains))) {
+				continue;
+			}
+			action.accept(read(i));
+		}
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/*
+	 * Valor do ClientChangeCounter quando a cópia foi gravada
+	 */
+	public long getChanges() {
+		return changes;
+	}
+
+	public Instant getCreatedAt() {
+		return Instant.ofEpochMilli(createdAt);
+	}
+
+	private ByteBuffer segment(long index) {
+		return segments[(int) (index / recordsPerSegment)];
+	}
+
+	private int offset(long index) {
+		return (int) (index % recordsPerSegment) * recordSize;
+	}
+
+	private ClientDTO read(long index) {
+		ByteBuffer buffer = segment(index);
+		int offset = offset(index);
+		byte flags = buffer.get(offset + FLAGS);
+		ClientDTO dto = new ClientDTO();
+		dto.setId(buffer.getLong(offset + ID));
+		if ((flags & HAS_VERSION) != 0) {
+			dto.setVersion(buffer.getLong(offset + VERSION));
+		}
+		if ((flags & HAS_INCOME) != 0) {
+			dto.setIncome(buffer.getDouble(offset + INCOME));
+		}
+		if ((flags & HAS_BIRTH_DATE) != 0) {
+			dto.setBirthDate(Instant.ofEpochSecond(buffer.getLong(offset + BIRTH_SECONDS), buffer.getInt(offset + BIRTH_NANOS)));
+		}
+		if ((flags & HAS_CHILDREN) != 0) {
+			dto.setChildren(buffer.getInt(offset + CHILDREN));
+		}
+		if ((flags & HAS_CPF) != 0) {
+			dto.setCpf(text(buffer, offset + TEXT, buffer.getShort(offset + CPF_LENGTH)));
+		}
+		if ((flags & HAS_NAME) != 0) {
+			dto.setName(text(buffer, offset + TEXT + cpfWidth * 2, buffer.getShort(offset + NAME_LENGTH)));
+		}
+		return dto;
+	}
+
+	private static String text(ByteBuffer buffer, int offset, int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = buffer.getChar(offset + i * 2);
+		}
+		return new String(chars);
+	}
+
+	private static boolean contains(ByteBuffer buffer, int offset, int length, String part) {
+		for (int start = 0; start + part.length() <= length; start++) {
+			int i = 0;
+			while (i < part.length() && buffer.getChar(offset + (start + i) * 2) == part.charAt(i)) {
+				i++;
+			}
+			if (i == part.length()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Grava os clientes (já ordenados por id) num arquivo novo. nameWidth e
+	 * cpfWidth são o maior tamanho, em caracteres, de cada coluna; um valor
+	 * maior, ou ids fora de ordem, abortam a gravação com IllegalStateException.
+	 */
+	public static class Writer implements AutoCloseable {
+
+		private static final int BATCH_BYTES = 1 << 20;
+
+		private final FileChannel channel;
+		private final ByteBuffer batch;
+		private final int recordSize;
+		private final int cpfWidth;
+		private final int nameWidth;
+		private long count;
+		private long lastId = Long.MIN_VALUE;
+
+		public Writer(Path file, int cpfWidth, int nameWidth) throws IOException {
+			if (cpfWidth > Short.MAX_VALUE || nameWidth > Short.MAX_VALUE) {
+				throw new IllegalArgumentException("Text columns are limited to " + Short.MAX_VALUE + " characters");
+			}
+			this.cpfWidth = cpfWidth;
+			this.nameWidth = nameWidth;
+			// arredondado para múltiplo de 8 para os longs ficarem alinhados
+			this.recordSize = (TEXT + (cpfWidth + nameWidth) * 2 + 7) & ~7;
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			this.batch = ByteBuffer.allocateDirect(Math.max(1, BATCH_BYTES / recordSize) * recordSize);
+			channel.position(HEADER_SIZE);
+		}
+
+		public void add(ClientDTO dto) throws IOException {
+			if (dto.getId() <= lastId) {
+				throw new IllegalStateException("Clients must be written in id order");
+			}
+			if (length(dto.getCpf()) > cpfWidth || length(dto.getName()) > nameWidth) {
+				throw new IllegalStateException("Client " + dto.getId() + " does not fit the record width");
+			}
+			lastId = dto.getId();
+			if (!batch.hasRemaining()) {
+				flush();
+			}
+			int offset = batch.position();
+			int flags = 0;
+			batch.putLong(offset + ID, dto.getId());
+			if (dto.getVersion() != null) {
+				batch.putLong(offset + VERSION, dto.getVersion());
+				flags |= HAS_VERSION;
+			}
+			if (dto.getIncome() != null) {
+				batch.putDouble(offset + INCOME, dto.getIncome());
+				flags |= HAS_INCOME;
+			}
+			if (dto.getBirthDate() != null) {
+				batch.putLong(offset + BIRTH_SECONDS, dto.getBirthDate().getEpochSecond());
+				batch.putInt(offset + BIRTH_NANOS, dto.getBirthDate().getNano());
+				flags |= HAS_BIRTH_DATE;
+			}
+			if (dto.getChildren() != null) {
+				batch.putInt(offset + CHILDREN, dto.getChildren());
+				flags |= HAS_CHILDREN;
+			}
+			if (dto.getCpf() != null) {
+				putText(offset + TEXT, dto.getCpf());
+				flags |= HAS_CPF;
+			}
+			if (dto.getName() != null) {
+				putText(offset + TEXT + cpfWidth * 2, dto.getName());
+				flags |= HAS_NAME;
+			}
+			batch.put(offset + FLAGS, (byte) flags);
+			batch.putShort(offset + CPF_LENGTH, (short) length(dto.getCpf()));
+			batch.putShort(offset + NAME_LENGTH, (short) length(dto.getName()));
+			batch.position(offset + recordSize);
+			count++;
+		}
+
+		/*
+		 * Grava o cabeçalho por último: um arquivo sem cabeçalho válido não é aberto
+		 */
+		public void finish(long changes) throws IOException {
+			flush();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(0, MAGIC);
+			header.putInt(4, FORMAT);
+			header.putInt(8, recordSize);
+			header.putInt(12, cpfWidth);
+			header.putInt(16, nameWidth);
+			header.putLong(24, count);
+			header.putLong(32, changes);
+			header.putLong(40, System.currentTimeMillis());
+			channel.write(header, 0);
+			channel.force(false);
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+		private void putText(int offset, String value) {
+			for (int i = 0; i < value.length(); i++) {
+				batch.putChar(offset + i * 2, value.charAt(i));
+			}
+		}
+
+		private void flush() throws IOException {
+			batch.flip();
+			while (batch.hasRemaining()) {
+				channel.write(batch);
+			}
+			batch.clear();
+			// zera o lote para não sobrar texto de registros anteriores nas larguras não usadas
+			for (int i = 0; i < batch.capacity(); i += 8) {
+				batch.putLong(i, 0L);
+			}
+		}
+
+		private static int length(String value) {
+			return value == null ? 0 : value.length();
+		}
+
+	}
+
+}
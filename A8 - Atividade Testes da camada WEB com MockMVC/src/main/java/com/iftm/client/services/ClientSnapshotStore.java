@@ -0,0 +1,201 @@
+package com.iftm.client.services;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.repositories.ClientRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ * Mantém o ClientSnapshot de tb_client (client.snapshot.enabled=true).
+ * A cópia é gravada na subida e regravada por inteiro quando o
+ * ClientChangeCounter avança (verificado a cada client.snapshot.check-interval)
+ * ou quando passa de client.snapshot.max-age, o que cobre escritas de outras
+ * instâncias. Enquanto houver escrita local ainda não copiada, current()
+ * devolve null e as leituras voltam para o banco: qualquer escrita desliga a
+ * cópia por até um check-interval mais o tempo de regravá-la, então ela só
+ * compensa em tabelas que quase não mudam.
+ * Cada gravação vai para um arquivo novo ao lado de client.snapshot.path
+ * (client-snapshot-<número>.bin), nunca sobre um arquivo mapeado. O anterior
+ * é apagado após a troca; o mapeamento dele só é liberado pelo GC, quando
+ * nenhuma leitura em andamento o usa mais (Java não desfaz um mapeamento de
+ * forma segura). No Windows um arquivo mapeado não pode ser apagado, e a
+ * exclusão é tentada de novo a cada refresh(). Sobras de execuções
+ * anteriores são apagadas na subida.
+ * Com a cópia ligada o cache de clientes por id deixa de ser necessário e
+ * pode ser zerado (client.cache.maximum-size=0) para liberar o heap.
+ */
+@Component
+@EnableScheduling
+@ConditionalOnProperty(name = "client.snapshot.enabled", havingValue = "true")
+public class ClientSnapshotStore {
+
+	private static final Logger log = LoggerFactory.getLogger(ClientSnapshotStore.class);
+
+	private final ClientRepository repository;
+	private final ClientChangeCounter changeCounter;
+	private final TransactionTemplate readOnlyTransaction;
+	private final Path directory;
+	private final String prefix;
+	private final String suffix;
+	private final Duration maxAge;
+
+	private volatile ClientSnapshot snapshot;
+	// arquivo da cópia atual e arquivos de cópias anteriores ainda não apagados
+	private Path file;
+	private final List<Path> retired = new ArrayList<>();
+
+	public ClientSnapshotStore(ClientRepository repository, ClientChangeCounter changeCounter,
+			PlatformTransactionManager transactionManager,
+			@Value("${client.snapshot.path:${java.io.tmpdir}/client-snapshot.bin}") String file,
+			@Value("${client.snapshot.max-age:10m}") Duration maxAge) {
+		this.repository = repository;
+		this.changeCounter = changeCounter;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		Path path = Paths.get(file).toAbsolutePath();
+		String name = path.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		this.directory = path.getParent();
+		this.prefix = (dot > 0 ? name.substring(0, dot) : name) + "-";
+		this.suffix = dot > 0 ? name.substring(dot) : ".bin";
+		this.maxAge = maxAge;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void seed() {
+		try {
+			Files.createDirectories(directory);
+			try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+				for (Path leftover : leftovers) {
+					// o agendamento pode ter gravado uma cópia antes da subida terminar
+					if (!leftover.equals(file)) {
+						retired.add(leftover);
+					}
+				}
+			}
+		} catch (IOException e) {
+			log.warn("Could not list old client snapshots in {}", directory, e);
+		}
+		refresh();
+	}
+
+	/*
+	 * A cópia só é devolvida se nenhuma escrita local aconteceu depois dela
+	 */
+	public ClientSnapshot current() {
+		ClientSnapshot current = snapshot;
+		return current != null && current.getChanges() == changeCounter.changes() ? current : null;
+	}
+
+	@Scheduled(fixedDelayString = "${client.snapshot.check-interval:PT5S}")
+	public void refreshIfStale() {
+		ClientSnapshot current = snapshot;
+		if (current == null || current.getChanges() != changeCounter.changes()
+				|| current.getCreatedAt().plus(maxAge).isBefore(Instant.now())) {
+			refresh();
+		}
+	}
+
+	/*
+	 * Grava num arquivo novo e troca o atual; quem ainda lê a cópia anterior
+	 * continua com o mapeamento antigo até terminar. Se falhar, a cópia
+	 * anterior é mantida.
+	 */
+	public synchronized ClientSnapshot refresh() {
+		// lido antes da consulta: uma escrita durante a cópia a deixa desatualizada
+		long changes = changeCounter.changes();
+		Path written = null;
+		try {
+			Files.createDirectories(directory);
+			written = Files.createTempFile(directory, prefix, suffix);
+			write(written, changes);
+			snapshot = ClientSnapshot.open(written);
+			if (file != null) {
+				retired.add(file);
+			}
+			file = written;
+			log.info("Client snapshot written to {} ({} clients, {} bytes)", file, snapshot.getCount(), Files.size(file));
+		} catch (IOException | RuntimeException e) {
+			log.warn("Client snapshot refresh failed; keeping the previous copy", e);
+			if (written != null) {
+				retired.add(written);
+			}
+		}
+		deleteRetired();
+		return snapshot;
+	}
+
+	@PreDestroy
+	public synchronized void close() {
+		snapshot = null;
+		if (file != null) {
+			retired.add(file);
+			file = null;
+		}
+		deleteRetired();
+	}
+
+	private void write(Path target, long changes) {
+		readOnlyTransaction.executeWithoutResult(status -> {
+			Object[] lengths = repository.maxTextLengths().get(0);
+			try (ClientSnapshot.Writer writer = new ClientSnapshot.Writer(target, width(lengths[0]), width(lengths[1]));
+					Stream<ClientDTO> clients = repository.streamAllDTO()) {
+				clients.forEach(dto -> add(writer, dto));
+				writer.finish(changes);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private static void add(ClientSnapshot.Writer writer, ClientDTO dto) {
+		try {
+			writer.add(dto);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static int width(Object length) {
+		return length == null ? 0 : ((Number) length).intValue();
+	}
+
+	/*
+	 * Arquivos que não puderem ser apagados agora (mapeados, no Windows)
+	 * ficam para a próxima tentativa
+	 */
+	private void deleteRetired() {
+		retired.removeIf(path -> {
+			try {
+				Files.deleteIfExists(path);
+				return true;
+			} catch (IOException e) {
+				log.debug("Could not delete old client snapshot {} yet", path, e);
+				return false;
+			}
+		});
+	}
+
+}
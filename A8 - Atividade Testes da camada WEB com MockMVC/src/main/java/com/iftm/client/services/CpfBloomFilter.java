@@ -0,0 +1,170 @@
+package com.iftm.client.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Filtro de Bloom escalável (Almeida et al., 2007) para CPFs: quando o
+ * estágio atual chega à capacidade, um novo é aberto com o dobro da
+ * capacidade e metade da taxa de falso positivo. A taxa total fica abaixo de
+ * 2 * falsePositiveRate, qualquer que seja o número de CPFs.
+ * mightContain == false é definitivo; true pode ser falso positivo.
+ * Não há remoção: um CPF apagado continua dando "talvez" até a reconstrução.
+ * Leituras não usam lock; add() deve ser chamado por uma thread por vez.
+ */
+public class CpfBloomFilter {
+
+	private volatile Stage[] stages;
+	private final double falsePositiveRate;
+
+	public CpfBloomFilter(long expectedInsertions, double falsePositiveRate) {
+		if (expectedInsertions < 1) {
+			throw new IllegalArgumentException("expectedInsertions must be positive");
+		}
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+		}
+		this.falsePositiveRate = falsePositiveRate;
+		this.stages = new Stage[] { new Stage(expectedInsertions, falsePositiveRate / 2) };
+	}
+
+	public boolean mightContain(String cpf) {
+		long h1 = hash(cpf);
+		long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+		for (Stage stage : stages) {
+			if (stage.mightContain(h1, h2)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Um CPF que já responde "talvez" não ocupa espaço de novo
+	 */
+	public void add(String cpf) {
+		if (mightContain(cpf)) {
+			return;
+		}
+		Stage[] current = stages;
+		Stage last = current[current.length - 1];
+		if (last.count >= last.capacity) {
+			Stage[] grown = new Stage[current.length + 1];
+			System.arraycopy(current, 0, grown, 0, current.length);
+			last = new Stage(last.capacity * 2, last.falsePositiveRate / 2);
+			grown[current.length] = last;
+			stages = grown;
+		}
+		long h1 = hash(cpf);
+		last.add(h1, mix(h1 ^ 0x9E3779B97F4A7C15L) | 1);
+	}
+
+	public long getEntries() {
+		long entries = 0;
+		for (Stage stage : stages) {
+			entries += stage.count;
+		}
+		return entries;
+	}
+
+	public long getMemoryBytes() {
+		long bytes = 0;
+		for (Stage stage : stages) {
+			bytes += stage.bits.length() * 8L;
+		}
+		return bytes;
+	}
+
+	public double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+	/*
+	 * Taxa estimada pelo preenchimento real de cada estágio: (bits ligados / m) ^ k
+	 */
+	public double getEstimatedFalsePositiveRate() {
+		double none = 1;
+		for (Stage stage : stages) {
+			none *= 1 - Math.pow((double) stage.bitCount() / stage.size, stage.hashes);
+		}
+		return 1 - none;
+	}
+
+	public int getStages() {
+		return stages.length;
+	}
+
+	/*
+	 * FNV-1a sobre os caracteres e finalização do MurmurHash3; o segundo hash
+	 * sai do primeiro (double hashing de Kirsch e Mitzenmacher)
+	 */
+	private static long hash(String value) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			h = (h ^ value.charAt(i)) * 0x100000001b3L;
+		}
+		return mix(h);
+	}
+
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static final class Stage {
+
+		private final long capacity;
+		private final double falsePositiveRate;
+		private final AtomicLongArray bits;
+		private final long size;
+		private final int hashes;
+		private volatile long count;
+
+		private Stage(long capacity, double falsePositiveRate) {
+			this.capacity = capacity;
+			this.falsePositiveRate = falsePositiveRate;
+			// m = -n ln(p) / ln(2)^2 bits e k = m / n * ln(2) funções de hash
+			long optimal = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+			int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimal + 63) / 64));
+			this.bits = new AtomicLongArray(words);
+			this.size = words * 64L;
+			this.hashes = Math.max(1, (int) Math.round((double) size / capacity * Math.log(2)));
+		}
+
+		private boolean mightContain(long h1, long h2) {
+			for (int i = 0; i < hashes; i++) {
+				long bit = Math.floorMod(h1 + i * h2, size);
+				if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void add(long h1, long h2) {
+			for (int i = 0; i < hashes; i++) {
+				long bit = Math.floorMod(h1 + i * h2, size);
+				int word = (int) (bit >>> 6);
+				long mask = 1L << bit;
+				long current;
+				do {
+					current = bits.get(word);
+				} while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+			}
+			count++;
+		}
+
+		private long bitCount() {
+			long set = 0;
+			for (int i = 0; i < bits.length(); i++) {
+				set += Long.bitCount(bits.get(i));
+			}
+			return set;
+		}
+
+	}
+
+}
@@ -0,0 +1,267 @@
+package com.iftm.client.services;
+
+import com.iftm.client.entities.Client;
+import com.iftm.client.repositories.ClientChangesRepository;
+import com.iftm.client.repositories.ClientRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/*
+ * Mantém o CpfBloomFilter com todos os CPFs de tb_client para responder
+ * "não existe" sem consultar o banco. É carregado na subida e recebe o CPF
+ * novo antes do INSERT/UPDATE de Client feito pelo Hibernate: se a transação
+ * falhar fica só um falso positivo, nunca um falso negativo. O patch, que é
+ * um UPDATE em massa, chama add() pelo ClientService.
+ * add() grava o CPF de novo após o commit: uma recarga que leu a tabela antes
+ * do commit (e abriu pending depois do add) trocaria o filtro sem ele.
+ * Um filtro de Bloom não remove: exclusões e CPFs trocados só são contados,
+ * pela trigger ClientChangeTrigger em tb_client_changes.cpf_removals (só
+ * quando o CPF gravado de fato mudou, e também para escritas feitas fora
+ * desta instância). Passando de client.cpf-filter.rebuild-after-removals
+ * das entradas desde a última carga, o filtro é recarregado pela
+ * verificação agendada
+ * (client.cpf-filter.check-interval), na thread do agendador e com uma
+ * conexão própria, nunca na requisição que fez a exclusão. Escritas feitas
+ * por outras instâncias ou direto no banco só aparecem após um rebuild().
+ */
+@Component
+public class CpfTracker implements PreInsertEventListener, PreUpdateEventListener {
+	private static final long serialVersionUID = 1L;
+
+	private final transient ClientRepository repository;
+	private final transient ClientChangesRepository changesRepository;
+	private final transient EntityManagerFactory entityManagerFactory;
+	private final transient TransactionTemplate readOnlyTransaction;
+	private final long expectedInsertions;
+	private final double falsePositiveRate;
+	private final double rebuildAfterRemovals;
+
+	private final transient Counter absent;
+	private final transient Counter maybe;
+	private final transient Counter falsePositive;
+
+	// null até a primeira carga: sem filtro toda busca vai ao banco
+	private transient volatile CpfBloomFilter filter;
+	// CPFs gravados durante uma carga (ou antes da primeira), repassados ao filtro novo antes da troca
+	private transient List<String> pending = new ArrayList<>();
+	private final transient ReentrantLock writeLock = new ReentrantLock();
+	private final transient ReentrantLock rebuildLock = new ReentrantLock();
+	// CPFs removidos desde a última carga; baseline é a soma de cpf_removals lida nela
+	private final transient AtomicLong removals = new AtomicLong();
+	private volatile long baseline;
+
+	public CpfTracker(ClientRepository repository, ClientChangesRepository changesRepository,
+			EntityManagerFactory entityManagerFactory,
+			PlatformTransactionManager transactionManager, MeterRegistry registry,
+			@Value("${client.cpf-filter.expected-insertions:10000}") long expectedInsertions,
+			@Value("${client.cpf-filter.false-positive-rate:0.01}") double falsePositiveRate,
+			@Value("${client.cpf-filter.rebuild-after-removals:0.25}") double rebuildAfterRemovals) {
+		this.repository = repository;
+		this.changesRepository = changesRepository;
+		this.entityManagerFactory = entityManagerFactory;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.expectedInsertions = expectedInsertions;
+		this.falsePositiveRate = falsePositiveRate;
+		this.rebuildAfterRemovals = rebuildAfterRemovals;
+		this.absent = lookups(registry, "absent");
+		this.maybe = lookups(registry, "maybe");
+		this.falsePositive = lookups(registry, "false_positive");
+		Gauge.builder("client.cpf.filter.entries", this, t -> t.stat(CpfBloomFilter::getEntries))
+				.description("CPFs added to the Bloom filter").register(registry);
+		Gauge.builder("client.cpf.filter.memory", this, t -> t.stat(CpfBloomFilter::getMemoryBytes))
+				.description("Bloom filter bit array size").baseUnit("bytes").register(registry);
+		Gauge.builder("client.cpf.filter.fpp", this, t -> t.falsePositiveRate)
+				.description("Bloom filter false positive rate").tag("kind", "target").register(registry);
+		Gauge.builder("client.cpf.filter.fpp", this, t -> t.stat(CpfBloomFilter::getEstimatedFalsePositiveRate))
+				.description("Bloom filter false positive rate").tag("kind", "estimated").register(registry);
+		Gauge.builder("client.cpf.filter.removals", removals, AtomicLong::get)
+				.description("Deleted or replaced CPFs still set in the Bloom filter").register(registry);
+	}
+
+	@PostConstruct
+	public void registerListeners() {
+		EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+				.getServiceRegistry().getService(EventListenerRegistry.class);
+		registry.appendListeners(EventType.PRE_INSERT, this);
+		registry.appendListeners(EventType.PRE_UPDATE, this);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void seed() {
+		rebuild();
+	}
+
+	/*
+	 * Lê os CPFs distintos num filtro novo e troca o atual. As buscas seguem
+	 * no filtro antigo durante a carga; o que for gravado nesse intervalo
+	 * entra nos dois. Transações abertas antes da carga que fizerem commit
+	 * depois da leitura repassam o CPF no afterCommit de add().
+	 */
+	public void rebuild() {
+		rebuildLock.lock();
+		try {
+			writeLock.lock();
+			try {
+				if (pending == null) {
+					pending = new ArrayList<>();
+				}
+			} finally {
+				writeLock.unlock();
+			}
+			long[] removed = new long[1];
+			CpfBloomFilter fresh = readOnlyTransaction.execute(status -> {
+				// lido antes dos CPFs: uma remoção no meio da carga conta, no máximo, a mais
+				removed[0] = changesRepository.sumCpfRemovals();
+				CpfBloomFilter loaded = new CpfBloomFilter(
+						Math.max(expectedInsertions, repository.countDistinctCpfs() * 2), falsePositiveRate);
+				try (Stream<String> cpfs = repository.streamCpfs()) {
+					cpfs.forEach(loaded::add);
+				}
+				return loaded;
+			});
+			writeLock.lock();
+			try {
+				pending.forEach(fresh::add);
+				filter = fresh;
+				baseline = removed[0];
+				removals.set(0);
+			} finally {
+				pending = null;
+				writeLock.unlock();
+			}
+		} finally {
+			rebuildLock.unlock();
+		}
+	}
+
+	/*
+	 * false é definitivo; true significa "consultar o banco"
+	 */
+	public boolean mightContain(String cpf) {
+		CpfBloomFilter current = filter;
+		if (current != null && cpf != null && !current.mightContain(cpf)) {
+			absent.increment();
+			return false;
+		}
+		maybe.increment();
+		return true;
+	}
+
+	/*
+	 * Chamado quando o filtro disse "talvez" e o banco não achou o CPF
+	 */
+	public void falsePositive() {
+		falsePositive.increment();
+	}
+
+	/*
+	 * Grava na hora (a própria transação e quem ler logo após o commit já
+	 * enxergam o CPF) e de novo após o commit, para não perder o CPF numa
+	 * recarga que correu em paralelo com a transação
+	 */
+	public void add(String cpf) {
+		if (cpf == null) {
+			return;
+		}
+		put(cpf);
+		ClientChangeCounter.afterCommit(() -> put(cpf));
+	}
+
+	/*
+	 * Recarrega o filtro quando as remoções passam do limite. Roda no
+	 * agendador, como a atualização da cópia em memória, para que a leitura
+	 * da tabela não prenda a requisição nem uma segunda conexão dela.
+	 */
+	@Scheduled(fixedDelayString = "${client.cpf-filter.check-interval:PT5S}")
+	public void rebuildIfWorn() {
+		CpfBloomFilter current = filter;
+		if (current == null) {
+			return;
+		}
+		removals.set(changesRepository.sumCpfRemovals() - baseline);
+		if (removals.get() > current.getEntries() * rebuildAfterRemovals) {
+			rebuild();
+		}
+	}
+
+	private void put(String cpf) {
+		writeLock.lock();
+		try {
+			CpfBloomFilter current = filter;
+			if (current != null) {
+				current.add(cpf);
+			}
+			if (pending != null) {
+				pending.add(cpf);
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean onPreInsert(PreInsertEvent event) {
+		add(cpf(event.getPersister(), event.getState()));
+		return false;
+	}
+
+	@Override
+	public boolean onPreUpdate(PreUpdateEvent event) {
+		String after = cpf(event.getPersister(), event.getState());
+		if (event.getOldState() == null) {
+			add(after);
+			return false;
+		}
+		if (!Objects.equals(cpf(event.getPersister(), event.getOldState()), after)) {
+			add(after);
+		}
+		return false;
+	}
+
+	private double stat(ToDoubleFunction<CpfBloomFilter> stat) {
+		CpfBloomFilter current = filter;
+		return current == null ? 0 : stat.applyAsDouble(current);
+	}
+
+	private static Counter lookups(MeterRegistry registry, String result) {
+		return Counter.builder("client.cpf.filter.lookups")
+				.description("CPF lookups answered by the Bloom filter")
+				.tag("result", result)
+				.register(registry);
+	}
+
+	private static String cpf(EntityPersister persister, Object[] state) {
+		if (state == null || persister.getMappedClass() != Client.class) {
+			return null;
+		}
+		return (String) state[persister.getEntityMetamodel().getPropertyIndex("cpf")];
+	}
+
+}
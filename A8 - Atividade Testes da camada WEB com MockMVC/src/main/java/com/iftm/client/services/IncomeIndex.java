@@ -0,0 +1,185 @@
+package com.iftm.client.services;
+
+import java.util.Arrays;
+
+/*
+ * Índice secundário dos salários em memória: dois vetores primitivos
+ * paralelos (salário e id), ordenados por (income, id) como o ORDER BY
+ * income, id das listagens. As faixas ("> x", "entre a e b") são achadas por
+ * busca binária e a página é lida por posição, sem boxing e sem percorrer o
+ * que ficou antes do offset. Inserir e remover deslocam o trecho seguinte do
+ * vetor (O(n)), o que serve para uma tabela lida muito mais do que escrita.
+ * Clientes sem salário não entram. Não é thread-safe.
+ */
+public class IncomeIndex {
+
+	private double[] incomes;
+	private long[] ids;
+	private int size;
+
+	public IncomeIndex() {
+		this(16);
+	}
+
+	public IncomeIndex(int capacity) {
+		incomes = new double[Math.max(capacity, 1)];
+		ids = new long[incomes.length];
+	}
+
+	/*
+	 * Acrescenta no fim; usado na carga, que já vem do banco em ordem de
+	 * (income, id). Um par fora de ordem é inserido na posição certa.
+	 */
+	public void append(double income, long id) {
+		if (size > 0 && compare(incomes[size - 1], ids[size - 1], income, id) >= 0) {
+			add(income, id);
+			return;
+		}
+		ensureCapacity(size + 1);
+		incomes[size] = income;
+		ids[size] = id;
+		size++;
+	}
+
+	/*
+	 * Insere o par na posição dele; devolve false se o par já estava
+	 */
+	public boolean add(double income, long id) {
+		int position = find(income, id);
+		if (position >= 0) {
+			return false;
+		}
+		position = -position - 1;
+		ensureCapacity(size + 1);
+		System.arraycopy(incomes, position, incomes, position + 1, size - position);
+		System.arraycopy(ids, position, ids, position + 1, size - position);
+		incomes[position] = income;
+		ids[position] = id;
+		size++;
+		return true;
+	}
+
+	/*
+	 * Remove o par (income, id); um par desconhecido é ignorado e devolve false
+	 */
+	public boolean remove(double income, long id) {
+		int position = find(income, id);
+		if (position < 0) {
+			return false;
+		}
+		System.arraycopy(incomes, position + 1, incomes, position, size - position - 1);
+		System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+		size--;
+		return true;
+	}
+
+	/*
+	 * Remove o id seja qual for o salário dele e devolve esse salário (null
+	 * se o id não estiver no índice). Percorre o vetor de ids, O(n) como a
+	 * inserção, para quem não sabe o salário antigo (um UPDATE em massa)
+	 */
+	public Double removeId(long id) {
+		for (int position = 0; position < size; position++) {
+			if (ids[position] == id) {
+				double income = incomes[position];
+				System.arraycopy(incomes, position + 1, incomes, position, size - position - 1);
+				System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+				size--;
+				return income;
+			}
+		}
+		return null;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * Primeira posição com salário >= income
+	 */
+	public int lowerBound(double income) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (incomes[middle] < income) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/*
+	 * Primeira posição com salário > income
+	 */
+	public int upperBound(double income) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (incomes[middle] <= income) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/*
+	 * Ids das posições [from, to), pulando skip e devolvendo até limit, em
+	 * ordem crescente ou decrescente de (income, id)
+	 */
+	public long[] ids(int from, int to, boolean ascending, long skip, int limit) {
+		// página depois do fim da faixa (ou offset enorme): vazia, sem tocar nos vetores
+		long available = (long) to - from;
+		if (skip < 0 || skip >= available || limit <= 0) {
+			return new long[0];
+		}
+		int length = (int) Math.min(limit, available - skip);
+		long[] page = new long[length];
+		if (ascending) {
+			System.arraycopy(ids, (int) (from + skip), page, 0, length);
+		} else {
+			int start = (int) (to - 1 - skip);
+			for (int i = 0; i < length; i++) {
+				page[i] = ids[start - i];
+			}
+		}
+		return page;
+	}
+
+	private int find(double income, long id) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compare(incomes[middle], ids[middle], income, id);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > incomes.length) {
+			int grown = Math.max(capacity, incomes.length + (incomes.length >> 1));
+			incomes = Arrays.copyOf(incomes, grown);
+			ids = Arrays.copyOf(ids, grown);
+		}
+	}
+
+	private static int compare(double income, long id, double otherIncome, long otherId) {
+		int comparison = Double.compare(income, otherIncome);
+		return comparison != 0 ? comparison : Long.compare(id, otherId);
+	}
+
+}
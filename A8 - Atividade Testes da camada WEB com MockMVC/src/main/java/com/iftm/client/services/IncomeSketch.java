@@ -0,0 +1,114 @@
+package com.iftm.client.services;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Sketch de quantis com erro relativo garantido (no estilo do DDSketch):
+ * cada valor positivo cai na faixa ceil(log_gamma(x)), com
+ * gamma = (1 + alpha) / (1 - alpha), e o quantil é devolvido como o ponto
+ * médio da faixa. Assim o valor de qualquer quantil fica a no máximo
+ * alpha (ex.: 1%) do valor exato, para todos os quantis.
+ *
+ * Diferente do t-digest e do KLL, aceita remoções exatas (basta decrementar
+ * a faixa), o que permite acompanhar updates e deletes. Valores <= 0 são
+ * contados numa faixa própria e respondidos como 0. Não é thread-safe.
+ */
+public class IncomeSketch {
+
+	private final double relativeAccuracy;
+	private final double logGamma;
+	private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+	private long zeroCount;
+	private long count;
+	private double sum;
+
+	public IncomeSketch(double relativeAccuracy) {
+		if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+			throw new IllegalArgumentException("relativeAccuracy must be in (0, 1)");
+		}
+		this.relativeAccuracy = relativeAccuracy;
+		this.logGamma = Math.log((1 + relativeAccuracy) / (1 - relativeAccuracy));
+	}
+
+	public void add(double value) {
+		if (value > 0) {
+			buckets.merge(index(value), 1L, Long::sum);
+		} else {
+			zeroCount++;
+		}
+		count++;
+		sum += value;
+	}
+
+	/*
+	 * Remove um valor adicionado antes; um valor desconhecido é ignorado
+	 */
+	public void remove(double value) {
+		if (value > 0) {
+			int index = index(value);
+			Long current = buckets.get(index);
+			if (current == null) {
+				return;
+			}
+			if (current == 1) {
+				buckets.remove(index);
+			} else {
+				buckets.put(index, current - 1);
+			}
+		} else {
+			if (zeroCount == 0) {
+				return;
+			}
+			zeroCount--;
+		}
+		count--;
+		sum -= value;
+	}
+
+	/*
+	 * Quantil q em [0, 1] (nearest-rank), ou null sem valores
+	 */
+	public Double quantile(double q) {
+		if (q < 0 || q > 1) {
+			throw new IllegalArgumentException("Quantile must be in [0, 1]");
+		}
+		if (count == 0) {
+			return null;
+		}
+		long rank = (long) Math.floor(q * (count - 1));
+		long seen = zeroCount;
+		if (rank < seen) {
+			return 0.0;
+		}
+		for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+			seen += bucket.getValue();
+			if (rank < seen) {
+				return value(bucket.getKey());
+			}
+		}
+		return value(buckets.lastKey());
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getSum() {
+		return sum;
+	}
+
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+	private int index(double value) {
+		return (int) Math.ceil(Math.log(value) / logGamma);
+	}
+
+	private double value(int index) {
+		// ponto médio (em erro relativo) da faixa (gamma^(i-1), gamma^i]
+		return 2 * Math.exp(index * logGamma) / (1 + Math.exp(logGamma));
+	}
+
+}
@@ -0,0 +1,350 @@
+package com.iftm.client.services;
+
+import com.iftm.client.dto.IncomeQuantilesDTO;
+import com.iftm.client.entities.Client;
+import com.iftm.client.repositories.ClientRepository;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/*
+ * Mantém as estruturas em memória sobre os salários de tb_client: o
+ * IncomeSketch (quantis) e o IncomeIndex (faixas e maiores salários). São
+ * carregadas uma vez na subida e depois atualizadas a cada insert, update e
+ * delete de Client feito pelo Hibernate, somente após o commit e com o
+ * salário antigo e o novo.
+ * UPDATE/DELETE em massa não passam pelos eventos. O patch informa só o
+ * salário novo (changed()): o id é procurado no índice e o salário que ele
+ * tinha sai das duas estruturas. As exclusões por cpf ou em lote leem os
+ * pares (id, salário) antes do DELETE e chamam removed(); se o DELETE
+ * apagar linhas que a leitura não viu, invalidate() faz as duas serem
+ * reconstruídas na próxima leitura. Tudo é aplicado após o commit. Escritas
+ * feitas por outras instâncias ou direto no banco só aparecem após um
+ * rebuild().
+ * Toda alteração passa pelo índice primeiro e só mexe no sketch se o par
+ * (salário, id) de fato entrou ou saiu dele, então aplicar a mesma alteração
+ * duas vezes não conta o salário em dobro. É isso que deixa o rebuild() ler
+ * a tabela fora do monitor: as alterações que chegam durante a leitura vão
+ * para as estruturas atuais e para uma fila, que é reaplicada nas novas
+ * (a leitura pode ou não ter visto cada uma) antes da troca.
+ */
+@Component
+public class IncomeTracker implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+		PostCommitDeleteEventListener {
+	private static final long serialVersionUID = 1L;
+
+	private final transient ClientRepository repository;
+	private final transient EntityManagerFactory entityManagerFactory;
+	private final transient TransactionTemplate readOnlyTransaction;
+	private final double relativeAccuracy;
+
+	private final transient Object rebuildLock = new Object();
+
+	private transient IncomeSketch sketch;
+	private transient IncomeIndex index;
+	private volatile boolean stale = true;
+	// incrementado por markStale(): uma invalidação durante o rebuild() mantém stale
+	private long staleGeneration;
+	// alterações recebidas durante a leitura do rebuild(); null fora dele
+	private transient List<BiConsumer<IncomeSketch, IncomeIndex>> pending;
+
+	public IncomeTracker(ClientRepository repository, EntityManagerFactory entityManagerFactory,
+			PlatformTransactionManager transactionManager,
+			@Value("${client.income-sketch.relative-accuracy:0.01}") double relativeAccuracy) {
+		this.repository = repository;
+		this.entityManagerFactory = entityManagerFactory;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.relativeAccuracy = relativeAccuracy;
+		this.sketch = new IncomeSketch(relativeAccuracy);
+		this.index = new IncomeIndex();
+	}
+
+	@PostConstruct
+	public void registerListeners() {
+		EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+				.getServiceRegistry().getService(EventListenerRegistry.class);
+		registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+		registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+		registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void seed() {
+		rebuild();
+	}
+
+	/*
+	 * Relê os pares (income, id) já em ordem (uma consulta pelo índice
+	 * idx_client_income, sem carregar entidades) e troca as duas estruturas.
+	 * A leitura roda fora do monitor: leituras e eventos continuam usando as
+	 * estruturas atuais, e os eventos que chegarem nesse meio tempo são
+	 * reaplicados nas novas antes da troca. Um rebuild() por vez.
+	 */
+	public IncomeQuantilesDTO rebuild() {
+		synchronized (rebuildLock) {
+			long generation;
+			int capacity;
+			synchronized (this) {
+				pending = new ArrayList<>();
+				generation = staleGeneration;
+				capacity = Math.max(16, index.size());
+			}
+			IncomeSketch freshSketch = new IncomeSketch(relativeAccuracy);
+			IncomeIndex freshIndex = new IncomeIndex(capacity);
+			try {
+				readOnlyTransaction.executeWithoutResult(status -> {
+					try (Stream<Object[]> rows = repository.streamIncomesWithIds()) {
+						rows.forEach(row -> {
+							double income = (Double) row[0];
+							freshSketch.add(income);
+							freshIndex.append(income, (Long) row[1]);
+						});
+					}
+				});
+				synchronized (this) {
+					pending.forEach(change -> change.accept(freshSketch, freshIndex));
+					sketch = freshSketch;
+					index = freshIndex;
+					stale = staleGeneration != generation;
+				}
+			} finally {
+				synchronized (this) {
+					pending = null;
+				}
+			}
+		}
+		return currentQuantiles(List.of(0.5, 0.9, 0.99));
+	}
+
+	/*
+	 * Salário trocado por um UPDATE em massa, que não devolve o antigo: sai
+	 * o que o id tiver no índice e entra o novo
+	 */
+	public void changed(long id, double after) {
+		ClientChangeCounter.afterCommit(() -> apply((sketch, index) -> replaceId(sketch, index, id, after)));
+	}
+
+	/*
+	 * Linhas apagadas por um DELETE em massa, id -> salário lido antes dele
+	 */
+	public void removed(Map<Long, Double> incomes) {
+		if (!incomes.isEmpty()) {
+			ClientChangeCounter.afterCommit(() -> removeAll(incomes));
+		}
+	}
+
+	public void invalidate() {
+		ClientChangeCounter.afterCommit(this::markStale);
+	}
+
+	public IncomeQuantilesDTO quantiles(List<Double> quantiles) {
+		refreshIfStale();
+		return currentQuantiles(quantiles);
+	}
+
+	/*
+	 * Ids com salário > income, na ordem de (income, id) pedida, a partir de
+	 * skip; total é o tamanho da faixa inteira
+	 */
+	public IncomeIds greaterThan(double income, boolean ascending, long skip, int limit) {
+		refreshIfStale();
+		synchronized (this) {
+			int from = index.upperBound(income);
+			return new IncomeIds(index.size() - from, index.ids(from, index.size(), ascending, skip, limit));
+		}
+	}
+
+	/*
+	 * Ids com salário entre min e max, inclusive os dois (como o BETWEEN)
+	 */
+	public IncomeIds between(double min, double max, boolean ascending, long skip, int limit) {
+		refreshIfStale();
+		synchronized (this) {
+			int from = index.lowerBound(min);
+			int to = Math.max(from, index.upperBound(max));
+			return new IncomeIds(to - from, index.ids(from, to, ascending, skip, limit));
+		}
+	}
+
+	/*
+	 * Os k maiores salários, do maior para o menor
+	 */
+	public long[] top(int k) {
+		refreshIfStale();
+		synchronized (this) {
+			return index.ids(0, index.size(), false, 0, k);
+		}
+	}
+
+	private synchronized IncomeQuantilesDTO currentQuantiles(List<Double> quantiles) {
+		IncomeQuantilesDTO dto = new IncomeQuantilesDTO();
+		dto.setCount(sketch.getCount());
+		dto.setSum(sketch.getSum());
+		dto.setAverage(sketch.getCount() == 0 ? null : sketch.getSum() / sketch.getCount());
+		dto.setRelativeAccuracy(relativeAccuracy);
+		Map<String, Double> values = new LinkedHashMap<>();
+		for (Double q : quantiles) {
+			values.put("p" + format(q * 100), sketch.quantile(q));
+		}
+		dto.setQuantiles(values);
+		return dto;
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		Double income = income(event.getPersister(), event.getState());
+		long id = (Long) event.getId();
+		apply((sketch, index) -> replace(sketch, index, id, null, income));
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		if (event.getOldState() == null) {
+			markStale();
+			return;
+		}
+		Double before = income(event.getPersister(), event.getOldState());
+		Double after = income(event.getPersister(), event.getState());
+		long id = (Long) event.getId();
+		apply((sketch, index) -> replace(sketch, index, id, before, after));
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		Double income = income(event.getPersister(), event.getDeletedState());
+		long id = (Long) event.getId();
+		apply((sketch, index) -> replace(sketch, index, id, income, null));
+	}
+
+	@Override
+	public void onPostInsertCommitFailed(PostInsertEvent event) {
+	}
+
+	@Override
+	public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+	}
+
+	@Override
+	public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+	}
+
+	@Override
+	public boolean requiresPostCommitHandling(EntityPersister persister) {
+		return persister.getMappedClass() == Client.class;
+	}
+
+	// abstrato no Hibernate 5.4; substituído por requiresPostCommitHandling
+	@Override
+	@Deprecated
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return requiresPostCommitHandling(persister);
+	}
+
+	/*
+	 * Aplica a alteração nas estruturas atuais e, durante um rebuild(),
+	 * guarda-a para as novas
+	 */
+	private synchronized void apply(BiConsumer<IncomeSketch, IncomeIndex> change) {
+		change.accept(sketch, index);
+		if (pending != null) {
+			pending.add(change);
+		}
+	}
+
+	// o sketch só muda se o par entrou ou saiu do índice: reaplicar não duplica
+	private static void replace(IncomeSketch sketch, IncomeIndex index, long id, Double before, Double after) {
+		if (before != null && index.remove(before, id)) {
+			sketch.remove(before);
+		}
+		if (after != null && index.add(after, id)) {
+			sketch.add(after);
+		}
+	}
+
+	private static void replaceId(IncomeSketch sketch, IncomeIndex index, long id, double after) {
+		Double before = index.removeId(id);
+		if (before != null) {
+			sketch.remove(before);
+		}
+		if (index.add(after, id)) {
+			sketch.add(after);
+		}
+	}
+
+	private void removeAll(Map<Long, Double> incomes) {
+		apply((sketch, index) -> incomes.forEach((id, income) -> replace(sketch, index, id, income, null)));
+	}
+
+	private void refreshIfStale() {
+		if (stale) {
+			synchronized (rebuildLock) {
+				if (stale) {
+					rebuild();
+				}
+			}
+		}
+	}
+
+	private synchronized void markStale() {
+		staleGeneration++;
+		stale = true;
+	}
+
+	private static Double income(EntityPersister persister, Object[] state) {
+		if (state == null || persister.getMappedClass() != Client.class) {
+			return null;
+		}
+		return (Double) state[persister.getEntityMetamodel().getPropertyIndex("income")];
+	}
+
+	private static String format(double percent) {
+		return percent == Math.rint(percent) ? String.valueOf((long) percent) : String.valueOf(percent);
+	}
+
+	/*
+	 * Uma página de ids do IncomeIndex e o total de ids da faixa
+	 */
+	public static class IncomeIds {
+
+		private final long total;
+		private final long[] ids;
+
+		public IncomeIds(long total, long[] ids) {
+			this.total = total;
+			this.ids = ids;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+
+		public long[] getIds() {
+			return ids;
+		}
+
+	}
+
+}
@@ -0,0 +1,267 @@
+package com.iftm.client.services;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/*
+ * Modo opcional (client.page.parallel-count=true) em que o conteúdo de uma
+ * página roda na thread da requisição e o COUNT numa thread do pool
+ * client.page.count-threads, cada um com a sua conexão; a latência passa a
+ * ser a maior das duas consultas e não a soma.
+ * Proteção do pool de conexões: cada COUNT reserva uma vaga de um semáforo
+ * com no máximo client.page.count-threads vagas e nunca mais que o tamanho
+ * do Hikari menos client.page.reserved-connections, as conexões que ficam
+ * para as threads das requisições. Sem vaga, ou sem conexão livre no Hikari
+ * (ou com alguém já esperando por uma), a página é montada em sequência,
+ * como o Spring Data faz. Se o COUNT não terminar em client.page.count-timeout
+ * ele é cancelado e refeito na thread da requisição. Cada desvio é contado
+ * em client.page.fallbacks, por motivo.
+ * Métricas: client.page.query (part=content|count), client.page.latency
+ * (mode=parallel|sequential) e client.page.saved, a soma das duas consultas
+ * menos o tempo total, ou seja, quanto a execução em paralelo economizou.
+ */
+@Component
+public class ParallelPageQueries {
+
+	private final boolean enabled;
+	private final ThreadPoolExecutor executor;
+	private final TransactionTemplate readOnlyTransaction;
+	private final HikariDataSource hikari;
+	private final MeterRegistry registry;
+	private final Semaphore slots;
+	private final Duration countTimeout;
+
+	public ParallelPageQueries(DataSource dataSource, PlatformTransactionManager transactionManager, MeterRegistry registry,
+			@Value("${client.page.parallel-count:false}") boolean enabled,
+			@Value("${client.page.count-threads:4}") int threads,
+			@Value("${client.page.reserved-connections:5}") int reservedConnections,
+			@Value("${client.page.count-timeout:2s}") Duration countTimeout) {
+		this.enabled = enabled;
+		this.registry = registry;
+		this.countTimeout = countTimeout;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.hikari = hikari(dataSource);
+		int permits = hikari == null ? threads
+				: Math.min(threads, Math.max(0, hikari.getMaximumPoolSize() - reservedConnections));
+		this.slots = new Semaphore(permits);
+		AtomicInteger counter = new AtomicInteger();
+		// a fila nunca passa de permits tarefas: quem não tem vaga nem chega ao executor
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "page-count-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * Monta a página a partir de um Slice (pageSize + 1 linhas) e do total.
+	 * Como no Spring Data, a primeira página incompleta dispensa o COUNT;
+	 * aqui ele já foi disparado e o resultado é só ignorado.
+	 */
+	public <T> Page<T> page(String query, Pageable pageable, Supplier<Slice<T>> content, LongSupplier count) {
+		long start = System.nanoTime();
+		Future<long[]> total = submit(query, count);
+		if (total == null) {
+			Slice<T> slice = time(query, "content", content);
+			Page<T> page = toPage(slice, pageable, () -> time(query, "count", count::getAsLong));
+			latency(query, "sequential").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			return page;
+		}
+		long contentStart = System.nanoTime();
+		Slice<T> slice = time(query, "content", content);
+		long contentNanos = System.nanoTime() - contentStart;
+		long[] counted = new long[2];
+		Page<T> page = toPage(slice, pageable, () -> {
+			long[] result = await(query, total, count);
+			counted[1] = result[1];
+			return result[0];
+		});
+		long elapsed = System.nanoTime() - start;
+		latency(query, "parallel").record(elapsed, TimeUnit.NANOSECONDS);
+		if (counted[1] > 0) {
+			Timer.builder("client.page.saved")
+					.description("Content plus count query time minus the parallel page time")
+					.tag("query", query)
+					.register(registry)
+					.record(Math.max(0, contentNanos + counted[1] - elapsed), TimeUnit.NANOSECONDS);
+		}
+		return page;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/*
+	 * Devolve {total, duração em nanos} do COUNT
+	 */
+	private Future<long[]> submit(String query, LongSupplier count) {
+		if (!enabled) {
+			return null;
+		}
+		if (!slots.tryAcquire()) {
+			fallback(query, "no_slot");
+			return null;
+		}
+		if (poolBusy()) {
+			slots.release();
+			fallback(query, "pool_busy");
+			return null;
+		}
+		// a vaga é devolvida por quem chegar primeiro: o fim do COUNT ou o cancelamento antes dele começar
+		AtomicBoolean claimed = new AtomicBoolean();
+		FutureTask<long[]> task = new FutureTask<long[]>(() -> {
+			if (!claimed.compareAndSet(false, true)) {
+				return null;
+			}
+			try {
+				return readOnlyTransaction.execute(status -> {
+					long start = System.nanoTime();
+					long total = time(query, "count", count::getAsLong);
+					return new long[] { total, System.nanoTime() - start };
+				});
+			} finally {
+				slots.release();
+			}
+		}) {
+			@Override
+			protected void done() {
+				if (isCancelled() && claimed.compareAndSet(false, true)) {
+					slots.release();
+				}
+			}
+		};
+		try {
+			executor.execute(task);
+			return task;
+		} catch (RejectedExecutionException e) {
+			task.cancel(false);
+			fallback(query, "rejected");
+			return null;
+		}
+	}
+
+	private static <T> Page<T> toPage(Slice<T> slice, Pageable pageable, Supplier<Long> total) {
+		List<T> content = slice.getContent();
+		if (pageable.getOffset() == 0 && !slice.hasNext() && content.size() < pageable.getPageSize()) {
+			return new PageImpl<>(content, pageable, content.size());
+		}
+		return new PageImpl<>(content, pageable, total.get());
+	}
+
+	/*
+	 * Uma segunda conexão só é pedida se o Hikari tiver uma ociosa ou puder
+	 * abrir outra sem deixar alguém esperando
+	 */
+	private boolean poolBusy() {
+		HikariPoolMXBean pool = hikari == null ? null : hikari.getHikariPoolMXBean();
+		if (pool == null) {
+			return false;
+		}
+		return pool.getThreadsAwaitingConnection() > 0
+				|| (pool.getIdleConnections() == 0 && pool.getTotalConnections() >= hikari.getMaximumPoolSize());
+	}
+
+	/*
+	 * Espera o COUNT por até client.page.count-timeout; passando disso (o pool
+	 * de conexões pode estar tomado por requisições que também esperam) ele é
+	 * cancelado e roda na thread da requisição, que já tem a sua conexão
+	 */
+	private long[] await(String query, Future<long[]> total, LongSupplier count) {
+		try {
+			return total.get(countTimeout.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			total.cancel(true);
+			fallback(query, "timeout");
+			long start = System.nanoTime();
+			long counted = time(query, "count", count::getAsLong);
+			return new long[] { counted, System.nanoTime() - start };
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			total.cancel(true);
+			throw new IllegalStateException("Interrupted while waiting for the count query", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private <T> T time(String query, String part, Supplier<T> action) {
+		return timer(query, part).record(action);
+	}
+
+	private Timer timer(String query, String part) {
+		return Timer.builder("client.page.query")
+				.description("Content and count queries of paged listings")
+				.tag("query", query)
+				.tag("part", part)
+				.register(registry);
+	}
+
+	private Timer latency(String query, String mode) {
+		return Timer.builder("client.page.latency")
+				.description("Time to build a page with its total")
+				.tag("query", query)
+				.tag("mode", mode)
+				.register(registry);
+	}
+
+	private void fallback(String query, String reason) {
+		Counter.builder("client.page.fallbacks")
+				.description("Pages whose count query ran on the request thread")
+				.tag("query", query)
+				.tag("reason", reason)
+				.register(registry)
+				.increment();
+	}
+
+	private static HikariDataSource hikari(DataSource dataSource) {
+		try {
+			return dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)
+					? dataSource.unwrap(HikariDataSource.class)
+					: null;
+		} catch (SQLException e) {
+			return null;
+		}
+	}
+
+}
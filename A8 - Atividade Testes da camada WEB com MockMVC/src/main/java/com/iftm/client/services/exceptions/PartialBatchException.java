@@ -0,0 +1,30 @@
+package com.iftm.client.services.exceptions;
+
+import java.util.List;
+
+/*
+ * Falha de um bloco do insertAll: os blocos anteriores já foram gravados,
+ * então o chamador recebe os ids deles e o índice do bloco que falhou para
+ * reenviar só o restante.
+ */
+public class PartialBatchException extends DatabaseException {
+	private static final long serialVersionUID = 1L;
+
+	private final List<Long> committedIds;
+	private final int failedChunk;
+
+	public PartialBatchException(String msg, List<Long> committedIds, int failedChunk) {
+		super(msg);
+		this.committedIds = committedIds;
+		this.failedChunk = failedChunk;
+	}
+
+	public List<Long> getCommittedIds() {
+		return committedIds;
+	}
+
+	public int getFailedChunk() {
+		return failedChunk;
+	}
+
+}
@@ -1,12 +1,15 @@
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Conceição Evaristo', '10619244881', 1500.0, TIMESTAMP WITH TIME ZONE '2020-07-13T20:50:00Z', 2);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Lázaro Ramos', '10619244881', 2500.0, TIMESTAMP WITH TIME ZONE '1996-12-23T07:00:00Z', 2);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Clarice Lispector', '10919444522', 3800.0, TIMESTAMP WITH TIME ZONE '1960-04-13T07:50:00Z', 2);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Carolina Maria de Jesus', '10419244771', 7500.0, TIMESTAMP WITH TIME ZONE '1996-12-23T07:00:00Z', 0);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Gilberto Gil', '10419344882', 2500.0, TIMESTAMP WITH TIME ZONE '1949-05-05T07:00:00Z', 4);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Djamila Ribeiro', '10619244884', 4500.0, TIMESTAMP WITH TIME ZONE '1975-11-10T07:00:00Z', 1);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Jose Saramago', '10239254871', 5000.0, TIMESTAMP WITH TIME ZONE '1996-12-23T07:00:00Z', 0);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Toni Morrison', '10219344681', 10000.0, TIMESTAMP WITH TIME ZONE '1940-02-23T07:00:00Z', 0);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Yuval Noah Harari', '10619244881', 1500.0, TIMESTAMP WITH TIME ZONE '1956-09-23T07:00:00Z', 0);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Chimamanda Adichie', '10114274861', 1500.0, TIMESTAMP WITH TIME ZONE '1956-09-23T07:00:00Z', 0);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Silvio Almeida', '10164334861', 4500.0, TIMESTAMP WITH TIME ZONE '1970-09-23T07:00:00Z', 2);
-INSERT INTO tb_client (name, cpf, income, birth_date, children) VALUES('Jorge Amado', '10204374161', 2500.0, TIMESTAMP WITH TIME ZONE '1918-09-23T07:00:00Z', 0);
\ No newline at end of file
+CREATE TRIGGER tb_client_cpf_trigram_trg AFTER INSERT, UPDATE, DELETE ON tb_client FOR EACH ROW CALL "com.iftm.client.repositories.CpfTrigramTrigger";
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(1, 'Conceição Evaristo', '10619244881', 1500.0, TIMESTAMP WITH TIME ZONE '2020-07-13T20:50:00Z', 2, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(2, 'Lázaro Ramos', '10619244881', 2500.0, TIMESTAMP WITH TIME ZONE '1996-12-23T07:00:00Z', 2, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(3, 'Clarice Lispector', '10919444522', 3800.0, TIMESTAMP WITH TIME ZONE '1960-04-13T07:50:00Z', 2, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(4, 'Carolina Maria de Jesus', '10419244771', 7500.0, TIMESTAMP WITH TIME ZONE '1996-12-23T07:00:00Z', 0, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(5, 'Gilberto Gil', '10419344882', 2500.0, TIMESTAMP WITH TIME ZONE '1949-05-05T07:00:00Z', 4, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(6, 'Djamila Ribeiro', '10619244884', 4500.0, TIMESTAMP WITH TIME ZONE '1975-11-10T07:00:00Z', 1, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(7, 'Jose Saramago', '10239254871', 5000.0, TIMESTAMP WITH TIME ZONE '1996-12-23T07:00:00Z', 0, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(8, 'Toni Morrison', '10219344681', 10000.0, TIMESTAMP WITH TIME ZONE '1940-02-23T07:00:00Z', 0, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(9, 'Yuval Noah Harari', '10619244881', 1500.0, TIMESTAMP WITH TIME ZONE '1956-09-23T07:00:00Z', 0, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(10, 'Chimamanda Adichie', '10114274861', 1500.0, TIMESTAMP WITH TIME ZONE '1956-09-23T07:00:00Z', 0, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(11, 'Silvio Almeida', '10164334861', 4500.0, TIMESTAMP WITH TIME ZONE '1970-09-23T07:00:00Z', 2, 0);
+INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES(12, 'Jorge Amado', '10204374161', 2500.0, TIMESTAMP WITH TIME ZONE '1918-09-23T07:00:00Z', 0, 0);
+ALTER SEQUENCE tb_client_seq RESTART WITH 13;INSERT INTO tb_client_changes (stripe, epoch, changes, cpf_removals) SELECT X, DATEDIFF('MILLISECOND', TIMESTAMP '1970-01-01 00:00:00', CURRENT_TIMESTAMP), 0, 0 FROM SYSTEM_RANGE(0, 15);
+CREATE TRIGGER tb_client_changes_trg AFTER INSERT, UPDATE, DELETE ON tb_client FOR EACH ROW CALL "com.iftm.client.repositories.ClientChangeTrigger";
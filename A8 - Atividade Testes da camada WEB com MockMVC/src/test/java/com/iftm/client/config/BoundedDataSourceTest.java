@@ -0,0 +1,47 @@
+package com.iftm.client.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedDataSourceTest {
+
+    @Test
+    @DisplayName("Verifica se o BoundedDataSource limita as conexões abertas e devolve a permissão no close")
+    public void testaLimiteDeConexoesSimultaneas() throws Exception {
+        DataSource alvo = Mockito.mock(DataSource.class);
+        Mockito.when(alvo.getConnection()).thenAnswer(invocacao -> Mockito.mock(Connection.class));
+        BoundedDataSource dataSource = new BoundedDataSource(alvo, 1, Duration.ofMillis(50));
+
+        Connection primeira = dataSource.getConnection();
+        assertThat(dataSource.availablePermits()).isZero();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        primeira.close();
+        primeira.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+
+        dataSource.getConnection().close();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Verifica se a permissão é devolvida quando o pool não consegue abrir a conexão")
+    public void testaPermissaoDevolvidaQuandoFalha() throws Exception {
+        DataSource alvo = Mockito.mock(DataSource.class);
+        Mockito.when(alvo.getConnection()).thenThrow(new SQLException("falhou"));
+        BoundedDataSource dataSource = new BoundedDataSource(alvo, 1, Duration.ofMillis(50));
+
+        assertThatThrownBy(dataSource::getConnection).hasMessage("falhou");
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,44 @@
+package com.iftm.client.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.iftm.client.dto.ClientDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JacksonConfigTest {
+
+    private final ClientDTO cliente = new ClientDTO(1L, "Conceição Evaristo", "10619244881", 1500.0,
+            Instant.parse("2020-07-13T20:50:00Z"), 2);
+
+    @Test
+    @DisplayName("Verifica se um ObjectMapper sem a configuração da web serializa o ClientDTO inteiro")
+    public void testaObjectMapperSemFiltroSerializaClientDTO() throws Exception {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        assertThat(mapper.writeValueAsString(cliente))
+                .contains("\"name\":\"Conceição Evaristo\"", "\"cpf\":\"10619244881\"", "\"children\":2");
+    }
+
+    @Test
+    @DisplayName("Verifica se o ObjectMapper da web escreve todos os campos sem fields= e só os pedidos com ele")
+    public void testaObjectMapperDaWebAplicaFiltroDeCampos() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfig().clientFieldsFilter().customize(builder);
+        ObjectMapper mapper = builder.build();
+
+        assertThat(mapper.writeValueAsString(cliente)).contains("\"name\"", "\"cpf\"", "\"income\"");
+
+        String filtrado = mapper.writer(new SimpleFilterProvider().addFilter(JacksonConfig.CLIENT_FIELDS,
+                SimpleBeanPropertyFilter.filterOutAllExcept(Set.of("id", "name")))).writeValueAsString(cliente);
+        assertThat(filtrado).isEqualTo("{\"id\":1,\"name\":\"Conceição Evaristo\"}");
+    }
+
+}
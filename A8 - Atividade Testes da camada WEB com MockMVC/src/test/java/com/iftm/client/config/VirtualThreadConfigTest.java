@@ -0,0 +1,31 @@
+package com.iftm.client.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VirtualThreadConfigTest {
+
+    @Test
+    @DisplayName("Verifica se as threads virtuais só são usadas a partir do Java 21")
+    public void testaThreadsVirtuaisSoNoJava21() throws Exception {
+        assertThat(VirtualThreadConfig.newVirtualThreadPerTaskExecutor(17)).isNull();
+        assertThat(VirtualThreadConfig.newVirtualThreadPerTaskExecutor(20)).isNull();
+
+        int versao = Runtime.version().feature();
+        ExecutorService executor = VirtualThreadConfig.newVirtualThreadPerTaskExecutor(versao);
+        if (versao < VirtualThreadConfig.VIRTUAL_THREADS_SINCE) {
+            assertThat(executor).isNull();
+            return;
+        }
+        try {
+            assertThat(executor.submit(() -> Thread.currentThread().toString()).get()).contains("VirtualThread");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
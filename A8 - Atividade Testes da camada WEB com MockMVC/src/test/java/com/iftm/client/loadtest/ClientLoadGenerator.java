@@ -0,0 +1,213 @@
+package com.iftm.client.loadtest;
+
+import com.iftm.client.DsclientApplication;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.services.ClientService;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Gerador de carga HTTP de modelo aberto: as requisições saem numa taxa fixa
+ * (rate por segundo), sem esperar as anteriores terminarem, e a latência é
+ * medida a partir do instante em que cada uma deveria ter saído, para que
+ * uma pausa do servidor não esconda a fila que ela causou.
+ *
+ * Por padrão sobe a aplicação numa porta aleatória com um H2 próprio e
+ * "rows" clientes sintéticos. Os relatórios (resumo em CSV e distribuição
+ * de percentis do HdrHistogram por endpoint) ficam em
+ * target/loadtest/<data>-<label>/.
+ */
+public class ClientLoadGenerator {
+
+	private static final String[] ORDER_BY = { "name", "income", "id" };
+
+	private final LoadTestConfig config;
+	private final Random random;
+	private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+	private final List<String> weightedEndpoints = new ArrayList<>();
+	private long maxId;
+
+	ClientLoadGenerator(LoadTestConfig config) {
+		this.config = config;
+		this.random = new Random(config.seed);
+		config.mix.forEach((endpoint, weight) -> {
+			stats.put(endpoint, new EndpointStats(endpoint));
+			for (int i = 0; i < weight; i++) {
+				weightedEndpoints.add(endpoint);
+			}
+		});
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadTestConfig config = LoadTestConfig.parse(args);
+		System.out.println("Load test: " + config);
+		ConfigurableApplicationContext context = null;
+		try {
+			String baseUrl = config.baseUrl;
+			// num servidor externo só os 12 clientes do import.sql são conhecidos
+			long maxId = baseUrl == null ? 12 + config.rows : 12;
+			if (baseUrl == null) {
+				context = startApplication(config);
+				int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+				baseUrl = "http://localhost:" + port;
+			}
+			ClientLoadGenerator generator = new ClientLoadGenerator(config);
+			generator.maxId = maxId;
+			generator.run(baseUrl);
+		} finally {
+			if (context != null) {
+				context.close();
+			}
+		}
+	}
+
+	private static ConfigurableApplicationContext startApplication(LoadTestConfig config) {
+		List<String> args = new ArrayList<>(List.of("--server.port=0", "--spring.jpa.show-sql=false",
+				"--logging.level.root=WARN", "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1"));
+		args.addAll(config.applicationArgs);
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(DsclientApplication.class)
+				.run(args.toArray(new String[0]));
+		context.getBean(ClientService.class).insertAll(syntheticClients(config.rows, new Random(config.seed)));
+		return context;
+	}
+
+	private static List<ClientDTO> syntheticClients(int rows, Random random) {
+		List<ClientDTO> clients = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			clients.add(new ClientDTO(null, "Cliente " + i, String.format("%011d", random.nextInt(1_000_000_000)),
+					Math.round(random.nextDouble() * 20000.0) / 1.0, Instant.ofEpochSecond(random.nextInt(1_500_000_000)),
+					random.nextInt(5)));
+		}
+		return clients;
+	}
+
+	void run(String baseUrl) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+		try {
+			run(baseUrl, HttpClient.newBuilder()
+					.version(HttpClient.Version.HTTP_1_1)
+					.executor(executor)
+					.connectTimeout(Duration.ofSeconds(5))
+					.build());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void run(String baseUrl, HttpClient client) throws IOException {
+		long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / config.rate);
+		long start = System.nanoTime();
+		long warmupEnd = start + TimeUnit.SECONDS.toNanos(config.warmup);
+		long end = warmupEnd + TimeUnit.SECONDS.toNanos(config.duration);
+		List<CompletableFuture<?>> inFlight = new ArrayList<>();
+		boolean measuring = false;
+
+		for (long i = 0; ; i++) {
+			long intended = start + i * intervalNanos;
+			if (intended >= end) {
+				break;
+			}
+			if (!measuring && intended >= warmupEnd) {
+				stats.values().forEach(EndpointStats::reset);
+				measuring = true;
+			}
+			long wait = intended - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			String endpoint = weightedEndpoints.get(random.nextInt(weightedEndpoints.size()));
+			EndpointStats endpointStats = stats.get(endpoint);
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path(endpoint)))
+					.header("Accept", "application/json")
+					.timeout(Duration.ofSeconds(30))
+					.GET()
+					.build();
+			inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, error) -> endpointStats.record(System.nanoTime() - intended,
+							error == null && response.statusCode() < 400)));
+			inFlight.removeIf(CompletableFuture::isDone);
+		}
+		awaitAll(inFlight);
+		report();
+	}
+
+	private String path(String endpoint) {
+		switch (endpoint) {
+			case "list":
+				return "/clients?page=" + random.nextInt(10) + "&linesPerPage=12&orderBy=" + ORDER_BY[random.nextInt(ORDER_BY.length)];
+			case "byId":
+				return "/clients/" + (1 + random.nextInt((int) maxId));
+			case "income":
+				return "/clients/incomeGreaterThan?income=" + random.nextInt(20000) + "&page=0&linesPerPage=12";
+			case "cpf":
+				return "/clients/cpf/?cpf=" + String.format("%04d", random.nextInt(10000)) + "&page=0&linesPerPage=12";
+			default:
+				throw new IllegalArgumentException("Unknown endpoint in mix: " + endpoint);
+		}
+	}
+
+	private static void awaitAll(List<CompletableFuture<?>> inFlight) {
+		CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0]))
+				.exceptionally(error -> null)
+				.join();
+		inFlight.clear();
+	}
+
+	private void report() throws IOException {
+		String name = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + "-" + config.label;
+		Path dir = Paths.get("target", "loadtest", name);
+		Files.createDirectories(dir);
+		Files.writeString(dir.resolve("config.txt"), config + System.lineSeparator());
+
+		try (PrintWriter summary = new PrintWriter(Files.newBufferedWriter(dir.resolve("summary.csv")))) {
+			summary.println("endpoint,requests,errors,throughput_per_s,p50_ms,p99_ms,p999_ms,max_ms");
+			System.out.printf(Locale.ROOT, "%-8s %9s %7s %10s %9s %9s %9s %9s%n",
+					"endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+			for (EndpointStats endpoint : stats.values()) {
+				Histogram histogram = endpoint.finish();
+				Object[] row = { endpoint.name, histogram.getTotalCount(), endpoint.errors(),
+						histogram.getTotalCount() / (double) config.duration, millis(histogram, 50.0),
+						millis(histogram, 99.0), millis(histogram, 99.9), histogram.getMaxValue() / 1000.0 };
+				summary.println(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f", row));
+				System.out.printf(Locale.ROOT, "%-8s %9d %7d %10.1f %9.3f %9.3f %9.3f %9.3f%n", row);
+				try (PrintStream hgrm = new PrintStream(Files.newOutputStream(dir.resolve(endpoint.name + ".hgrm")))) {
+					histogram.outputPercentileDistribution(hgrm, 1000.0);
+				}
+			}
+		}
+		System.out.println("Reports written to " + dir.toAbsolutePath());
+	}
+
+	private static double millis(Histogram histogram, double percentile) {
+		return histogram.getValueAtPercentile(percentile) / 1000.0;
+	}
+
+}
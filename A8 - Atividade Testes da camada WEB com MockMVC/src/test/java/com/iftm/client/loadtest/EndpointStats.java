@@ -0,0 +1,46 @@
+package com.iftm.client.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Latências de um endpoint em microssegundos. O Recorder aceita gravações
+ * concorrentes das threads do HttpClient; o intervalo de aquecimento é lido
+ * e descartado antes da medição
+ */
+class EndpointStats {
+
+	private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+	final String name;
+	private final Recorder recorder = new Recorder(MAX_LATENCY_MICROS, 3);
+	private final LongAdder errors = new LongAdder();
+
+	EndpointStats(String name) {
+		this.name = name;
+	}
+
+	void record(long latencyNanos, boolean success) {
+		recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+		if (!success) {
+			errors.increment();
+		}
+	}
+
+	void reset() {
+		recorder.getIntervalHistogram();
+		errors.reset();
+	}
+
+	Histogram finish() {
+		return recorder.getIntervalHistogram();
+	}
+
+	long errors() {
+		return errors.sum();
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.iftm.client.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Parâmetros do teste de carga no formato chave=valor. Chaves desconhecidas
+ * que começam com "--" são repassadas para a aplicação (ex.:
+ * --client.threads.virtual=true), o que permite comparar configurações
+ */
+class LoadTestConfig {
+
+	/* requisições por segundo, somando todos os endpoints (modelo aberto) */
+	double rate = 200;
+	/* segundos de medição e de aquecimento (descartado) */
+	int duration = 30;
+	int warmup = 10;
+	/* clientes sintéticos inseridos antes do teste */
+	int rows = 10000;
+	/* pesos de cada endpoint: list, byId, income, cpf */
+	Map<String, Integer> mix = new LinkedHashMap<>(Map.of("list", 40, "byId", 30, "income", 15, "cpf", 15));
+	/* rótulo do diretório de saída em target/loadtest */
+	String label = "run";
+	/* se informado, mede um servidor já em execução em vez de subir a aplicação */
+	String baseUrl;
+	long seed = 42;
+	List<String> applicationArgs = new ArrayList<>();
+
+	static LoadTestConfig parse(String[] args) {
+		LoadTestConfig config = new LoadTestConfig();
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				config.applicationArgs.add(arg);
+				continue;
+			}
+			int separator = arg.indexOf('=');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Expected key=value but got: " + arg);
+			}
+			String key = arg.substring(0, separator);
+			String value = arg.substring(separator + 1);
+			switch (key) {
+				case "rate": config.rate = Double.parseDouble(value); break;
+				case "duration": config.duration = Integer.parseInt(value); break;
+				case "warmup": config.warmup = Integer.parseInt(value); break;
+				case "rows": config.rows = Integer.parseInt(value); break;
+				case "mix": config.mix = parseMix(value); break;
+				case "label": config.label = value; break;
+				case "baseUrl": config.baseUrl = value; break;
+				case "seed": config.seed = Long.parseLong(value); break;
+				default: throw new IllegalArgumentException("Unknown load test parameter: " + key);
+			}
+		}
+		return config;
+	}
+
+	private static Map<String, Integer> parseMix(String value) {
+		Map<String, Integer> mix = new LinkedHashMap<>();
+		for (String entry : value.split(",")) {
+			String[] parts = entry.split(":");
+			mix.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+		}
+		return mix;
+	}
+
+	@Override
+	public String toString() {
+		return "rate=" + rate + "/s duration=" + duration + "s warmup=" + warmup + "s rows=" + rows
+				+ " mix=" + mix + " label=" + label + (baseUrl != null ? " baseUrl=" + baseUrl : "")
+				+ " applicationArgs=" + applicationArgs;
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.iftm.client.querycount;
+
+import net.ttddyy.dsproxy.QueryCount;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Zera a contagem antes de cada teste e, ao final, acrescenta uma linha
+ * com os comandos SQL do teste em target/query-counts.csv, para comparar
+ * entre builds quais testes passaram a executar mais comandos
+ */
+public class QueryCountExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private static final Path REPORT = Paths.get("target", "query-counts.csv");
+    private static boolean started;
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        QueryCounts.reset();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        QueryCount count = QueryCounts.current();
+        String line = context.getRequiredTestClass().getSimpleName() + "," + context.getRequiredTestMethod().getName()
+                + "," + count.getTotal() + "," + count.getSelect() + "," + count.getInsert() + ","
+                + count.getUpdate() + "," + count.getDelete() + "," + count.getOther() + System.lineSeparator();
+        write(line);
+    }
+
+    private static synchronized void write(String line) {
+        try {
+            Files.createDirectories(REPORT.getParent());
+            if (!started) {
+                Files.writeString(REPORT, "class,test,total,select,insert,update,delete,other" + System.lineSeparator());
+                started = true;
+            }
+            Files.writeString(REPORT, line, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
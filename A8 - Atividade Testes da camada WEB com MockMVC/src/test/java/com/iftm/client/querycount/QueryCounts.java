@@ -0,0 +1,31 @@
+package com.iftm.client.querycount;
+
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryCountHolder;
+
+/*
+ * Contagem de comandos SQL da thread atual desde o último reset. Com o
+ * MockMvc a requisição roda na própria thread do teste, então a contagem
+ * inclui tudo o que o endpoint executou
+ */
+public final class QueryCounts {
+
+    private QueryCounts() {
+    }
+
+    public static void reset() {
+        QueryCountHolder.clear();
+    }
+
+    public static QueryCount current() {
+        return QueryCountHolder.getGrandTotal();
+    }
+
+    public static long total() {
+        return current().getTotal();
+    }
+
+    public static long selects() {
+        return current().getSelect();
+    }
+}
@@ -1,15 +1,25 @@
 package com.iftm.client.repositories;
 
+import com.iftm.client.dto.ClientDTO;
 import com.iftm.client.entities.Client;
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -19,6 +29,9 @@ public class ClientRepositoryTest {
     @Autowired
     private ClientRepository repositorio;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     /**
      * Cenário de Teste 1
      * Objetivo: Verificar se a busca por id realmente retorna o cliente correto.
@@ -222,4 +235,128 @@ public class ClientRepositoryTest {
         Assertions.assertThat(resultado.get(0).getCpf()).isEqualTo(cpfClientesEsperados[0]);
         Assertions.assertThat(resultado.get(1).getCpf()).isEqualTo(cpfClientesEsperados[1]);
     }
+
+    /**
+     * Caso de teste 09
+     * Objetivo: Verificar se a busca por id com projeção retorna o DTO sem carregar a entidade.
+     */
+    @Test
+    @DisplayName("Testar se a busca por id com projeção retorna o DTO sem entidade gerenciada.")
+    void testaBuscaPorIdComProjecaoNaoCarregaEntidade() {
+        Optional<ClientDTO> resultado = repositorio.findDTOById(7L);
+
+        Assertions.assertThat(resultado).isPresent();
+        Assertions.assertThat(resultado.get().getName()).isEqualTo("Jose Saramago");
+        Assertions.assertThat(resultado.get().getIncome()).isEqualTo(5000.0);
+        //nenhuma entidade foi registrada no contexto de persistência
+        Assertions.assertThat(entityManager.getEntityManager().unwrap(Session.class)
+                .getStatistics().getEntityCount()).isZero();
+    }
+
+    /**
+     * Caso de teste 10
+     * Objetivo: Verificar se a busca por trecho do CPF pelo índice de trigramas retorna os clientes esperados.
+     * INSERT INTO tb_client (...) VALUES(5, 'Gilberto Gil', '10419344882', ...);
+     * INSERT INTO tb_client (...) VALUES(8, 'Toni Morrison', '10219344681', ...);
+     */
+    @Test
+    @DisplayName("Testar se a busca por trecho do CPF pelo índice de trigramas retorna os clientes esperados.")
+    void testaBuscaPorTrechoDoCpfPeloIndiceDeTrigramas() {
+        Page<ClientDTO> resultado = buscarPorTrechoDoCpf("19344");
+
+        Assertions.assertThat(resultado.getTotalElements()).isEqualTo(2);
+        Assertions.assertThat(resultado.getContent()).extracting(ClientDTO::getId).containsExactlyInAnyOrder(5L, 8L);
+    }
+
+    /**
+     * Caso de teste 11
+     * Objetivo: Verificar se o índice de trigramas acompanha inserção, alteração e exclusão de clientes.
+     */
+    @Test
+    @DisplayName("Testar se o índice de trigramas acompanha inserção, alteração e exclusão.")
+    void testaIndiceDeTrigramasAcompanhaEscritas() {
+        Client cliente = repositorio.saveAndFlush(new Client(null, "Trigrama", "55512345699", 100.0, Instant.now(), 0));
+        Assertions.assertThat(buscarPorTrechoDoCpf("1234").getContent())
+                .extracting(ClientDTO::getId).contains(cliente.getId());
+
+        cliente.setCpf("55598765499");
+        repositorio.saveAndFlush(cliente);
+        Assertions.assertThat(buscarPorTrechoDoCpf("1234").getContent())
+                .extracting(ClientDTO::getId).doesNotContain(cliente.getId());
+        Assertions.assertThat(buscarPorTrechoDoCpf("9876").getContent())
+                .extracting(ClientDTO::getId).containsExactly(cliente.getId());
+
+        repositorio.delete(cliente);
+        repositorio.flush();
+        Long trigramas = entityManager.getEntityManager()
+                .createQuery("SELECT COUNT(t) FROM ClientCpfTrigram t WHERE t.clientId = :id", Long.class)
+                .setParameter("id", cliente.getId())
+                .getSingleResult();
+        Assertions.assertThat(trigramas).isZero();
+    }
+
+    /**
+     * Caso de teste 12
+     * Objetivo: Verificar pelo plano de execução (EXPLAIN) que as ordenações aceitas,
+     * com o desempate por id, percorrem o índice já na ordem pedida (sem ordenar a tabela).
+     */
+    @Test
+    @DisplayName("Testar se a ordenação por name, income e cpf com desempate por id usa o índice.")
+    void testaOrdenacaoComDesempatePorIdUsaIndice() {
+        Assertions.assertThat(plano("SELECT * FROM tb_client ORDER BY name, id LIMIT 12"))
+                .contains("IDX_CLIENT_NAME").contains("index sorted");
+        Assertions.assertThat(plano("SELECT * FROM tb_client ORDER BY income, id LIMIT 12"))
+                .contains("IDX_CLIENT_INCOME").contains("index sorted");
+        Assertions.assertThat(plano("SELECT * FROM tb_client ORDER BY cpf, id LIMIT 12"))
+                .contains("IDX_CLIENT_CPF").contains("index sorted");
+    }
+
+    /**
+     * Caso de teste 13
+     * Objetivo: Verificar pelo plano de execução que os filtros por salário e por cpf
+     * consultam o índice em vez de percorrer a tabela.
+     */
+    @Test
+    @DisplayName("Testar se os filtros por salário e por cpf usam o índice.")
+    void testaFiltrosPorSalarioECpfUsamIndice() {
+        Assertions.assertThat(plano("SELECT * FROM tb_client WHERE income > 4000.0 ORDER BY income, id LIMIT 12"))
+                .contains("IDX_CLIENT_INCOME: INCOME > 4000.0").contains("index sorted");
+        Assertions.assertThat(plano("SELECT COUNT(*) FROM tb_client WHERE income > 4000.0"))
+                .contains("IDX_CLIENT_INCOME: INCOME > 4000.0");
+        Assertions.assertThat(plano("SELECT * FROM tb_client WHERE income = 5000.0"))
+                .contains("IDX_CLIENT_INCOME: INCOME = 5000.0");
+        Assertions.assertThat(plano("SELECT * FROM tb_client WHERE cpf = '10619244881'"))
+                .contains("IDX_CLIENT_CPF: CPF = '10619244881'");
+    }
+
+    /**
+     * Caso de teste 14
+     * Objetivo: Verificar se a consulta com sparse fieldsets traz só as colunas pedidas,
+     * mais o id e a coluna da ordenação, e mantém filtro, ordem e paginação.
+     */
+    @Test
+    @DisplayName("Testar se a consulta com fields traz só as colunas pedidas.")
+    void testaConsultaComFieldsTrazSoAsColunasPedidas() {
+        PageRequest pagina = PageRequest.of(0, 2, Sort.by(Direction.DESC, "income").and(Sort.by(Direction.DESC, "id")));
+
+        Slice<ClientDTO> resultado = repositorio.findSliceWithFields(Set.of("name"), 4000.0, null, pagina);
+
+        Assertions.assertThat(resultado.getContent()).extracting(ClientDTO::getId).containsExactly(8L, 4L);
+        Assertions.assertThat(resultado.getContent()).extracting(ClientDTO::getName)
+                .containsExactly("Toni Morrison", "Carolina Maria de Jesus");
+        Assertions.assertThat(resultado.getContent()).extracting(ClientDTO::getIncome).containsExactly(10000.0, 7500.0);
+        Assertions.assertThat(resultado.getContent()).extracting(ClientDTO::getCpf).containsOnlyNulls();
+        Assertions.assertThat(resultado.getContent()).extracting(ClientDTO::getBirthDate).containsOnlyNulls();
+        Assertions.assertThat(resultado.hasNext()).isTrue();
+        Assertions.assertThat(repositorio.countFiltered(4000.0, null)).isEqualTo(5);
+    }
+
+    private String plano(String sql) {
+        return (String) entityManager.getEntityManager().createNativeQuery("EXPLAIN " + sql).getSingleResult();
+    }
+
+    private Page<ClientDTO> buscarPorTrechoDoCpf(String trecho) {
+        Set<String> trigramas = CpfTrigrams.of(trecho);
+        return repositorio.findDTOByCpfContaining("%" + trecho + "%", trigramas, trigramas.size(), PageRequest.of(0, 10));
+    }
 }
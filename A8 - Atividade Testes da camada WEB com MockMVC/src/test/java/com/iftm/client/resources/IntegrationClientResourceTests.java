@@ -1,24 +1,47 @@
 package com.iftm.client.resources;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iftm.client.dto.ClientBulkDeleteDTO;
 import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.querycount.QueryCountConfig;
+import com.iftm.client.querycount.QueryCountExtension;
+import com.iftm.client.querycount.QueryCounts;
+import com.iftm.client.services.ClientService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.assertj.core.api.Assertions;
+
+import com.jayway.jsonpath.JsonPath;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureMetrics
+@Import(QueryCountConfig.class)
+@ExtendWith(QueryCountExtension.class)
 public class IntegrationClientResourceTests {
     @Autowired
     private MockMvc mockMvc;
@@ -26,6 +49,12 @@ public class IntegrationClientResourceTests {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClientService clientService;
+
     @Test
     @DisplayName("Verificar se o endpoint get/clients/ retorna todos os clientes existentes")
     public void testarEndPointRetornaTodosOsRegistros() throws Exception {
@@ -183,4 +212,682 @@ public class IntegrationClientResourceTests {
                 .andExpect(jsonPath("$.first").exists())
                 .andExpect(jsonPath("$.first").value(true));
     }
+
+    @Test
+    @DisplayName("Verificar se a paginação por cursor percorre os mesmos clientes da paginação por offset")
+    public void testarPaginacaoPorCursorPercorreTodosOsRegistros() throws Exception {
+        String offset = mockMvc.perform(get("/clients/")
+                        .param("linesPerPage", "100")
+                        .param("orderBy", "income")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<Integer> esperado = JsonPath.read(offset, "$.content[*].id");
+
+        List<Integer> percorrido = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            String pagina = mockMvc.perform(get("/clients/")
+                            .param("linesPerPage", "5")
+                            .param("orderBy", "income")
+                            .param("after", cursor)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            percorrido.addAll(JsonPath.read(pagina, "$.content[*].id"));
+            cursor = JsonPath.read(pagina, "$.nextCursor");
+        }
+
+        //income se repete entre clientes; com o desempate por id nas duas paginações a ordem é a mesma
+        Assertions.assertThat(percorrido).containsExactlyElementsOf(esperado);
+        Assertions.assertThat(percorrido).doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("Verificar se a ordenação por coluna sem índice ou direção inválida retorna 400")
+    public void testarOrdenacaoForaDaListaRetorna400() throws Exception {
+        mockMvc.perform(get("/clients/")
+                        .param("orderBy", "birthDate")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid parameter"));
+        mockMvc.perform(get("/clients/incomeGreaterThan/")
+                        .param("income", "1000")
+                        .param("orderBy", "name; DROP TABLE tb_client")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/clients/")
+                        .param("orderBy", "name")
+                        .param("direction", "sideways")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Verificar se um cursor inválido retorna bad request")
+    public void testarCursorInvalidoRetornaBadRequest() throws Exception {
+        ResultActions resultado = mockMvc.perform(get("/clients/incomeGreaterThan/")
+                .param("income", "1000")
+                .param("after", "cursor-invalido")
+                .accept(MediaType.APPLICATION_JSON));
+
+        resultado.andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid parameter"));
+    }
+
+    @Test
+    @DisplayName("Verificar se includeTotal=false retorna a página sem o total de registros")
+    public void testarEndPointSemTotalNaoRetornaTotalElements() throws Exception {
+        ResultActions resultado = mockMvc.perform(get("/clients/cpf/")
+                .param("cpf", "106")
+                .param("linesPerPage", "1")
+                .param("includeTotal", "false")
+                .accept(MediaType.APPLICATION_JSON));
+
+        resultado.andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.numberOfElements").value(1))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.totalPages").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Verificar se a busca por trecho do CPF recusa os curingas '%' e '_' do LIKE")
+    public void testarBuscaPorTrechoDoCpfComCuringaRetornaBadRequest() throws Exception {
+        for (String cpf : List.of("10%", "102_9", "1%2_3")) {
+            mockMvc.perform(get("/clients/cpf/").param("cpf", cpf).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("Invalid parameter"));
+        }
+        mockMvc.perform(get("/clients/cpf/").param("cpf", "102_9").param("includeTotal", "false")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/clients/export").param("cpf", "102_9"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Verificar se a exportação em NDJSON retorna um cliente por linha com os filtros informados")
+    public void testarExportacaoNdjsonComFiltroDeCpf() throws Exception {
+        String corpo = mockMvc.perform(get("/clients/export")
+                        .param("cpf", "1021"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] linhas = corpo.trim().split("\n");
+        Assertions.assertThat(linhas).hasSize(1);
+        ClientDTO cliente = objectMapper.readValue(linhas[0], ClientDTO.class);
+        Assertions.assertThat(cliente.getId()).isEqualTo(8L);
+        Assertions.assertThat(cliente.getName()).isEqualTo("Toni Morrison");
+    }
+
+    @Test
+    @DisplayName("Verificar se a exportação em NDJSON sem nenhum cliente retorna o corpo vazio")
+    public void testarExportacaoNdjsonVazia() throws Exception {
+        String corpo = mockMvc.perform(get("/clients/export")
+                        .param("cpf", "98765432"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertThat(corpo).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Verificar se a exportação em CSV retorna o cabeçalho e as linhas filtradas por salário")
+    public void testarExportacaoCsvComFiltroDeSalario() throws Exception {
+        String corpo = mockMvc.perform(get("/clients/export")
+                        .param("income", "9000")
+                        .param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertThat(corpo.split("\n")).containsExactly(
+                "id,name,cpf,income,birthDate,children",
+                "8,Toni Morrison,10219344681,10000.0,1940-02-23T07:00:00Z,0");
+    }
+
+    @Test
+    @DisplayName("Verificar se a exportação em CSV põe entre aspas o campo com quebra de linha CR")
+    public void testarExportacaoCsvComRetornoDeCarroNoNome() throws Exception {
+        ClientDTO client = new ClientDTO(null, "Linha\rQuebrada", "66600000001", 987654.0,
+                Instant.parse("1996-12-23T07:00:00Z"), 0);
+        String criado = mockMvc.perform(post("/clients/")
+                        .content(objectMapper.writeValueAsString(client))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Number id = JsonPath.read(criado, "$.id");
+        try {
+            String corpo = mockMvc.perform(get("/clients/export")
+                            .param("income", "900000")
+                            .param("format", "csv"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            Assertions.assertThat(corpo).isEqualTo("id,name,cpf,income,birthDate,children\n"
+                    + id + ",\"Linha\rQuebrada\",66600000001,987654.0,1996-12-23T07:00:00Z,0\n");
+        } finally {
+            mockMvc.perform(delete("/clients/{id}", id.longValue()));
+        }
+    }
+
+    @Test
+    @DisplayName("Testa se a inserção em lote retorna created com os ids gerados")
+    public void testaRetornoSucessoInsertEmLote() throws Exception {
+        List<ClientDTO> clientes = List.of(
+                new ClientDTO(null, "Lote A", "88800000001", 150.0, Instant.parse("1996-12-23T07:00:00Z"), 1),
+                new ClientDTO(null, "Lote B", "88800000002", 250.0, Instant.parse("1996-12-23T07:00:00Z"), 2));
+
+        ResultActions result = mockMvc.perform(post("/clients/batch")
+                .content(objectMapper.writeValueAsString(clientes))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isCreated())
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    @DisplayName("Testa se a falha de um bloco do lote informa os ids já gravados e o bloco que falhou")
+    public void testaRetornoFalhaParcialInsertEmLote() throws Exception {
+        Object servico = AopTestUtils.getTargetObject(clientService);
+        Object tamanhoOriginal = ReflectionTestUtils.getField(servico, "batchChunkSize");
+        ReflectionTestUtils.setField(servico, "batchChunkSize", 2);
+        List<ClientDTO> clientes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // o quarto cliente (bloco 1) não cabe na coluna name
+            String nome = i == 3 ? "N".repeat(300) : "Parcial " + i;
+            clientes.add(new ClientDTO(null, nome, "77700000001", 100.0, Instant.parse("1996-12-23T07:00:00Z"), 0));
+        }
+        try {
+            String corpo = mockMvc.perform(post("/clients/batch")
+                            .content(objectMapper.writeValueAsString(clientes))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("Database exception"))
+                    .andExpect(jsonPath("$.failedChunk").value(1))
+                    .andExpect(jsonPath("$.committedIds.length()").value(2))
+                    .andReturn().getResponse().getContentAsString();
+
+            List<Number> gravados = JsonPath.read(corpo, "$.committedIds");
+            mockMvc.perform(get("/clients/{id}", gravados.get(1).longValue())
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.name").value("Parcial 1"));
+            // o bloco que falhou foi desfeito por inteiro, inclusive o cliente válido dele
+            Assertions.assertThat(jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM tb_client WHERE cpf = '77700000001'", Integer.class)).isEqualTo(2);
+        } finally {
+            ReflectionTestUtils.setField(servico, "batchChunkSize", tamanhoOriginal);
+            mockMvc.perform(delete("/clients")
+                    .content(objectMapper.writeValueAsString(
+                            new ClientBulkDeleteDTO(List.of(), List.of("77700000001"))))
+                    .contentType(MediaType.APPLICATION_JSON));
+        }
+    }
+
+    @Test
+    @DisplayName("Verificar se o endpoint clients/id responde 304 quando a ETag não mudou")
+    public void testarEndPointPorIdRetornaNotModifiedComMesmaETag() throws Exception {
+        long idExistente = 5L;
+
+        String etag = mockMvc.perform(get("/clients/{id}", idExistente)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/clients/{id}", idExistente)
+                        .header("If-None-Match", etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Verificar se a ETag fraca da listagem muda depois de uma inserção")
+    public void testarETagDaListagemMudaAposInsercao() throws Exception {
+        String etag = mockMvc.perform(get("/clients/")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        Assertions.assertThat(etag).startsWith("W/");
+
+        mockMvc.perform(get("/clients/")
+                        .header("If-None-Match", etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        ClientDTO client = new ClientDTO(null, "ETag", "77700000001", 100.0,
+                Instant.parse("1996-12-23T07:00:00Z"), 0);
+        mockMvc.perform(post("/clients/")
+                        .content(objectMapper.writeValueAsString(client))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/clients/")
+                        .header("If-None-Match", etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    @DisplayName("Verificar se a ETag da listagem muda com uma escrita feita direto no banco, fora da aplicação")
+    public void testarETagDaListagemMudaAposEscritaDiretaNoBanco() throws Exception {
+        String etag = mockMvc.perform(get("/clients/")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        jdbcTemplate.update("UPDATE tb_client SET children = children + 1 WHERE id = 5");
+        try {
+            mockMvc.perform(get("/clients/")
+                            .header("If-None-Match", etag)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", not(etag)));
+        } finally {
+            jdbcTemplate.update("UPDATE tb_client SET children = children - 1 WHERE id = 5");
+        }
+    }
+
+    @Test
+    @DisplayName("Testa se o patch altera apenas os campos enviados")
+    public void testaRetornoSucessoPatch() throws Exception {
+        long idExistente = 6L;
+
+        mockMvc.perform(patch("/clients/{id}", idExistente)
+                        .content("{\"income\": 4700.0}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/clients/{id}", idExistente)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.income").value(4700.0))
+                .andExpect(jsonPath("$.name").value("Djamila Ribeiro"))
+                .andExpect(jsonPath("$.cpf").value("10619244884"));
+    }
+
+    @Test
+    @DisplayName("Testa se o patch retorna not found quando o id não existe")
+    public void testaRetornoErroPatch() throws Exception {
+        mockMvc.perform(patch("/clients/{id}", 942L)
+                        .content("{\"income\": 4700.0}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Resource not found"));
+    }
+
+    @Test
+    @DisplayName("Testa se a exclusão em massa informa quantos registros cada id e cpf apagou")
+    public void testaRetornoSucessoDeleteEmMassa() throws Exception {
+        List<ClientDTO> clientes = List.of(
+                new ClientDTO(null, "Massa A", "66600000001", 100.0, Instant.parse("1996-12-23T07:00:00Z"), 0),
+                new ClientDTO(null, "Massa B", "66600000002", 100.0, Instant.parse("1996-12-23T07:00:00Z"), 0),
+                new ClientDTO(null, "Massa C", "66600000002", 100.0, Instant.parse("1996-12-23T07:00:00Z"), 0));
+        String corpo = mockMvc.perform(post("/clients/batch")
+                        .content(objectMapper.writeValueAsString(clientes))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Number idA = JsonPath.read(corpo, "$[0]");
+
+        ClientBulkDeleteDTO pedido = new ClientBulkDeleteDTO(
+                List.of(idA.longValue(), 942L), List.of("66600000002", "66600000009"));
+        mockMvc.perform(delete("/clients")
+                        .content(objectMapper.writeValueAsString(pedido))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ids['" + idA + "']").value(1))
+                .andExpect(jsonPath("$.ids['942']").value(0))
+                .andExpect(jsonPath("$.cpfs['66600000002']").value(2))
+                .andExpect(jsonPath("$.cpfs['66600000009']").value(0));
+
+        mockMvc.perform(get("/clients/{id}", idA.longValue())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Testa se a exclusão em massa trata ids ou cpfs nulos como listas vazias")
+    public void testaDeleteEmMassaComListasNulas() throws Exception {
+        String corpo = mockMvc.perform(post("/clients/batch")
+                        .content(objectMapper.writeValueAsString(List.of(
+                                new ClientDTO(null, "Massa Nula", "66600000011", 100.0, Instant.parse("1996-12-23T07:00:00Z"), 0))))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Number id = JsonPath.read(corpo, "$[0]");
+
+        mockMvc.perform(delete("/clients")
+                        .content("{\"ids\": null, \"cpfs\": [\"66600000011\"]}")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ids").isEmpty())
+                .andExpect(jsonPath("$.cpfs['66600000011']").value(1));
+        mockMvc.perform(delete("/clients")
+                        .content("{\"ids\": [" + id + "], \"cpfs\": null}")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ids['" + id + "']").value(0))
+                .andExpect(jsonPath("$.cpfs").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Verificar se incomeBetween e topEarners respondem pelo índice de salários em ordem de salário e id")
+    public void testarFaixaDeSalarioEMaioresSalarios() throws Exception {
+        List<ClientDTO> clientes = List.of(
+                new ClientDTO(null, "Faixa A", "77700000001", 9000002.0, Instant.parse("1996-12-23T07:00:00Z"), 0),
+                new ClientDTO(null, "Faixa B", "77700000002", 9000001.0, Instant.parse("1996-12-23T07:00:00Z"), 0),
+                new ClientDTO(null, "Faixa C", "77700000003", 9000002.0, Instant.parse("1996-12-23T07:00:00Z"), 0));
+        String corpo = mockMvc.perform(post("/clients/batch")
+                        .content(objectMapper.writeValueAsString(clientes))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        List<Number> ids = JsonPath.read(corpo, "$");
+        long idA = ids.get(0).longValue();
+        long idB = ids.get(1).longValue();
+        long idC = ids.get(2).longValue();
+
+        try {
+            String pagina = mockMvc.perform(get("/clients/incomeBetween")
+                            .param("min", "9000000")
+                            .param("max", "9000002")
+                            .param("linesPerPage", "2")
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").value(3))
+                    .andReturn().getResponse().getContentAsString();
+            Assertions.assertThat(idsDe(pagina, "$.content[*].id")).containsExactly(idB, idA);
+
+            pagina = mockMvc.perform(get("/clients/incomeBetween")
+                            .param("min", "9000000")
+                            .param("max", "9000002")
+                            .param("direction", "DESC")
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            Assertions.assertThat(idsDe(pagina, "$.content[*].id")).containsExactly(idC, idA, idB);
+
+            String maiores = mockMvc.perform(get("/clients/topEarners")
+                            .param("k", "2")
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            Assertions.assertThat(idsDe(maiores, "$[*].id")).containsExactly(idC, idA);
+
+            mockMvc.perform(get("/clients/topEarners")
+                            .param("k", "0")
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isBadRequest());
+
+            // página depois do fim: vazia, não 500
+            mockMvc.perform(get("/clients/incomeBetween")
+                            .param("min", "9000000")
+                            .param("max", "9000002")
+                            .param("page", "8")
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content").isEmpty())
+                    .andExpect(jsonPath("$.totalElements").value(3));
+            mockMvc.perform(get("/clients/incomeGreaterThan/")
+                            .param("income", "0")
+                            .param("orderBy", "income")
+                            .param("page", "50")
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content").isEmpty());
+        } finally {
+            mockMvc.perform(delete("/clients")
+                            .content(objectMapper.writeValueAsString(new ClientBulkDeleteDTO(List.of(idA, idB, idC), List.of())))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/clients/incomeBetween")
+                        .param("min", "9000000")
+                        .param("max", "9000002")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0));
+    }
+
+    private static List<Long> idsDe(String json, String caminho) {
+        List<Number> ids = JsonPath.read(json, caminho);
+        List<Long> resultado = new ArrayList<>();
+        ids.forEach(id -> resultado.add(id.longValue()));
+        return resultado;
+    }
+
+    @Test
+    @DisplayName("Verificar se a busca em lote por ids mantém a ordem pedida e informa os ids inexistentes")
+    public void testarEndPointBuscaEmLotePorIds() throws Exception {
+        QueryCounts.reset();
+        String corpo = mockMvc.perform(get("/clients/batch")
+                        .param("ids", "5,99999,2,5")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.missing[0]").value(99999))
+                .andReturn().getResponse().getContentAsString();
+        Assertions.assertThat(idsDe(corpo, "$.clients[*].id")).containsExactly(5L, 2L);
+        Assertions.assertThat(QueryCounts.total()).isLessThanOrEqualTo(1);
+
+        mockMvc.perform(get("/clients/batch")
+                        .param("ids", "")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Verificar se fields limita os campos do JSON nas listagens e na busca por id")
+    public void testarEndPointsComFields() throws Exception {
+        String corpo = mockMvc.perform(get("/clients/")
+                        .param("fields", "id,name")
+                        .param("orderBy", "id")
+                        .param("linesPerPage", "3")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").exists())
+                .andReturn().getResponse().getContentAsString();
+        List<Map<String, Object>> clientes = JsonPath.read(corpo, "$.content");
+        Assertions.assertThat(clientes).hasSize(3);
+        clientes.forEach(cliente -> Assertions.assertThat(cliente).containsOnlyKeys("id", "name"));
+
+        corpo = mockMvc.perform(get("/clients/incomeGreaterThan/")
+                        .param("income", "4000")
+                        .param("fields", "cpf")
+                        .param("includeTotal", "false")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        clientes = JsonPath.read(corpo, "$.content");
+        Assertions.assertThat(clientes).isNotEmpty();
+        clientes.forEach(cliente -> Assertions.assertThat(cliente).containsOnlyKeys("cpf"));
+
+        mockMvc.perform(get("/clients/{id}", 3L)
+                        .param("fields", "name")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Clarice Lispector"))
+                .andExpect(jsonPath("$.id").doesNotExist())
+                .andExpect(jsonPath("$.birthDate").doesNotExist());
+
+        mockMvc.perform(get("/clients/{id}", 3L)
+                        .param("fields", "name,salario")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/clients/")
+                        .param("fields", "name,salario")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Verificar se a busca exata por cpf retorna os clientes e 404 sem consulta para cpf inexistente")
+    public void testarEndPointBuscaPorCpfExato() throws Exception {
+        mockMvc.perform(get("/clients/cpf/{cpf}", "10419244771")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Carolina Maria de Jesus"));
+
+        QueryCounts.reset();
+        mockMvc.perform(get("/clients/cpf/{cpf}", "99999999997")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+        Assertions.assertThat(QueryCounts.total()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("Verificar se o endpoint prometheus expõe as métricas de endpoints, serviço, Hibernate, Hikari e JVM")
+    public void testarEndPointPrometheusExpoeMetricas() throws Exception {
+        mockMvc.perform(get("/clients/{id}", 3L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/clients/cpf/{cpf}", "99999999998")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+
+        String metricas = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertThat(metricas)
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("uri=\"/clients/{id}\"")
+                .containsPattern("client_service_seconds_bucket\\{[^}]*method=\"findById\"")
+                .contains("hibernate_statements_total")
+                .contains("hibernate_flushes_total")
+                .contains("hikaricp_connections_usage_seconds")
+                .contains("hikaricp_connections_acquire_seconds")
+                .contains("client_cpf_filter_memory_bytes")
+                .contains("client_cpf_filter_fpp{kind=\"target\",} 0.01")
+                .containsPattern("client_cpf_filter_lookups_total\\{[^}]*result=\"absent\"")
+                .contains("jvm_gc_memory_allocated_bytes_total");
+    }
+
+    @Test
+    @DisplayName("Verificar quantos comandos SQL as listagens executam")
+    public void testarQuantidadeDeConsultasDasListagens() throws Exception {
+        // mais a leitura de tb_client_changes para a ETag
+        QueryCounts.reset();
+        mockMvc.perform(get("/clients/").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        Assertions.assertThat(QueryCounts.total()).isLessThanOrEqualTo(3);
+
+        QueryCounts.reset();
+        mockMvc.perform(get("/clients/?includeTotal=false").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        Assertions.assertThat(QueryCounts.total()).isEqualTo(2);
+
+        QueryCounts.reset();
+        mockMvc.perform(get("/clients/cpf/?cpf=1934").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        Assertions.assertThat(QueryCounts.total()).isLessThanOrEqualTo(3);
+
+        // 304: só a leitura da ETag
+        String etag = mockMvc.perform(get("/clients/?includeTotal=false").accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader("ETag");
+        QueryCounts.reset();
+        mockMvc.perform(get("/clients/?includeTotal=false").header("If-None-Match", etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+        Assertions.assertThat(QueryCounts.total()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Verificar se update, patch e delete não repetem o select do cliente")
+    public void testarQuantidadeDeConsultasDoUpdateEDelete() throws Exception {
+        ClientDTO client = new ClientDTO(null, "Contagem", "44400000001", 100.0,
+                Instant.parse("1996-12-23T07:00:00Z"), 0);
+        String corpo = mockMvc.perform(post("/clients/")
+                        .content(objectMapper.writeValueAsString(client))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Number id = JsonPath.read(corpo, "$.id");
+
+        QueryCounts.reset();
+        client.setIncome(200.0);
+        mockMvc.perform(put("/clients/{id}", id.longValue())
+                        .content(objectMapper.writeValueAsString(client))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        Assertions.assertThat(QueryCounts.selects()).isEqualTo(1);
+        Assertions.assertThat(QueryCounts.current().getUpdate()).isEqualTo(1);
+
+        // patch com salário e cpf: só o UPDATE, sem ler o cliente antes
+        QueryCounts.reset();
+        mockMvc.perform(patch("/clients/{id}", id.longValue())
+                        .content("{\"income\": 300.0, \"cpf\": \"44400000002\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+        Assertions.assertThat(QueryCounts.total()).isEqualTo(1);
+        Assertions.assertThat(QueryCounts.current().getUpdate()).isEqualTo(1);
+
+        QueryCounts.reset();
+        mockMvc.perform(delete("/clients/{id}", id.longValue()))
+                .andExpect(status().isNoContent());
+        Assertions.assertThat(QueryCounts.selects()).isEqualTo(1);
+        Assertions.assertThat(QueryCounts.current().getDelete()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Verificar se as estatísticas de salário vêm de uma única consulta agregada")
+    public void testarEstatisticasDeSalarioComFiltroDeNascimento() throws Exception {
+        QueryCounts.reset();
+
+        mockMvc.perform(get("/clients/stats/income")
+                        .param("birthDateTo", "1950-01-01T00:00:00Z")
+                        .param("bucketWidth", "5000")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3))
+                .andExpect(jsonPath("$.sum").value(15000.0))
+                .andExpect(jsonPath("$.average").value(5000.0))
+                .andExpect(jsonPath("$.min").value(2500.0))
+                .andExpect(jsonPath("$.max").value(10000.0))
+                .andExpect(jsonPath("$.buckets.length()").value(2))
+                .andExpect(jsonPath("$.buckets[0].from").value(0.0))
+                .andExpect(jsonPath("$.buckets[0].count").value(2))
+                .andExpect(jsonPath("$.buckets[1].from").value(10000.0))
+                .andExpect(jsonPath("$.buckets[1].count").value(1));
+
+        Assertions.assertThat(QueryCounts.total()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Verificar se as estatísticas sem clientes e com faixa inválida respondem corretamente")
+    public void testarEstatisticasDeSalarioSemClientesEFaixaInvalida() throws Exception {
+        mockMvc.perform(get("/clients/stats/income")
+                        .param("children", "942")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(0))
+                .andExpect(jsonPath("$.average").doesNotExist())
+                .andExpect(jsonPath("$.buckets").isEmpty());
+
+        mockMvc.perform(get("/clients/stats/income")
+                        .param("bucketWidth", "0")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        // faixas de 1 centavo: o limite conta só as faixas com clientes, uma por salário distinto
+        mockMvc.perform(get("/clients/stats/income")
+                        .param("birthDateTo", "1950-01-01T00:00:00Z")
+                        .param("bucketWidth", "0.01")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.buckets.length()").value(2));
+    }
 }
@@ -1,9 +1,15 @@
 package com.iftm.client.service;
 
+import com.iftm.client.config.CacheConfig;
 import com.iftm.client.dto.ClientDTO;
 import com.iftm.client.entities.Client;
 import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.ClientChangeCounter;
 import com.iftm.client.services.ClientService;
+import com.iftm.client.services.CpfTracker;
+import com.iftm.client.services.IncomeTracker;
+import com.iftm.client.services.ParallelPageQueries;
+import com.iftm.client.services.exceptions.InvalidParameterException;
 import com.iftm.client.services.exceptions.ResourceNotFoundException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -12,10 +18,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -36,6 +47,21 @@ public class ClientServiceTest {
     @Mock
     private ClientRepository repositorio;
 
+    @Mock
+    private ClientChangeCounter contadorAlteracoes;
+
+    @Mock
+    private IncomeTracker salarios;
+
+    @Mock
+    private CpfTracker cpfs;
+
+    @Mock
+    private ParallelPageQueries paginas;
+
+    @Mock
+    private CacheManager gerenciadorDeCache;
+
 //    delete deveria
 //    ◦ retornar vazio quando o id existir
     @DisplayName("Testar se o método deleteById apaga um registro e não retorna outras informações")
@@ -80,9 +106,9 @@ public class ClientServiceTest {
         ));
 
         PageRequest pageRequest = PageRequest.of(0, clientes.size());
-        Page<Client> page = new PageImpl<>(clientes);
+        Page<ClientDTO> page = new PageImpl<>(clientes).map(ClientDTO::new);
 
-        Mockito.when(repositorio.findAll(pageRequest)).thenReturn(page);
+        Mockito.when(repositorio.findAllDTO(pageRequest)).thenReturn(page);
         Page<ClientDTO> result = servico.findAllPaged(pageRequest);
 
         Assertions.assertNotNull(result);
@@ -90,7 +116,7 @@ public class ClientServiceTest {
         Assertions.assertEquals(clientes.get(0).getId(), result.getContent().get(0).getId());
         Assertions.assertEquals(clientes.get(1).getId(), result.getContent().get(1).getId());
         Assertions.assertEquals(clientes.get(2).getId(), result.getContent().get(2).getId());
-        Mockito.verify(repositorio , times(1)).findAll(pageRequest);
+        Mockito.verify(repositorio , times(1)).findAllDTO(pageRequest);
     }
 
 
@@ -105,17 +131,40 @@ public class ClientServiceTest {
                 new Client(3L,"Chiquinha", "192298324", 9723.0, Instant.now(), 2)
         ));
         PageRequest pageRequest = PageRequest.of(0, clientes.size());
-        Page<Client> page = new PageImpl<>(clientes);
+        Page<ClientDTO> page = new PageImpl<>(clientes).map(ClientDTO::new);
         int tamanho = 2;
 
-        Mockito.when(repositorio.findByIncomeGreaterThan(1500D, pageRequest)).thenReturn(page);
+        Mockito.when(repositorio.findDTOByIncomeGreaterThan(1500D, pageRequest)).thenReturn(page);
         Page<ClientDTO> resultado = servico.findByIncomeGreaterThan(pageRequest,1500D);
 
         Assertions.assertEquals(tamanho, resultado.getContent().size());
         Assertions.assertTrue(resultado.getContent().get(0).getIncome()>1500);
         Assertions.assertTrue(resultado.getContent().get(1).getIncome()>1500);
         Mockito.verify(repositorio , times(1))
-                .findByIncomeGreaterThan(1500D, pageRequest);
+                .findDTOByIncomeGreaterThan(1500D, pageRequest);
+    }
+
+
+    //    findAllSliced deveria retornar uma fatia sem total (e não chamar o
+    //    findAll paginado, que executa o COUNT)
+
+    @DisplayName("Testa se o método findAllSliced não usa a consulta com total")
+    @Test
+    public void testaSeOMetodoFindAllSlicedNaoConsultaTotal() {
+        List<Client> clientes = new ArrayList<>(Arrays.asList(
+                new Client(1L,"Felipe Guimarães", "123123123123", 242.0, Instant.now(), 1),
+                new Client(2L,"Ana Paula", "41412414142124", 1354.0, Instant.now(), 4)
+        ));
+        PageRequest pageRequest = PageRequest.of(0, clientes.size());
+        Slice<ClientDTO> slice = new SliceImpl<>(clientes, pageRequest, true).map(ClientDTO::new);
+
+        Mockito.when(repositorio.findSliceBy(pageRequest)).thenReturn(slice);
+        Slice<ClientDTO> resultado = servico.findAllSliced(pageRequest);
+
+        Assertions.assertEquals(clientes.size(), resultado.getNumberOfElements());
+        Assertions.assertTrue(resultado.hasNext());
+        Mockito.verify(repositorio, times(1)).findSliceBy(pageRequest);
+        Mockito.verify(repositorio, Mockito.never()).findAllDTO(pageRequest);
     }
 
 
@@ -134,11 +183,11 @@ public class ClientServiceTest {
                 Instant.parse("1940-02-23T07:00:00Z"),
                 1);
 
-        Mockito.when(repositorio.findById(idExistente)).thenReturn(Optional.of(client));
+        Mockito.when(repositorio.findDTOById(idExistente)).thenReturn(Optional.of(new ClientDTO(client)));
 
         servico.findById(idExistente);
 
-        Mockito.verify(repositorio, times(1)).findById(idExistente);
+        Mockito.verify(repositorio, times(1)).findDTOById(idExistente);
     }
 
     //    findById deveria
@@ -148,11 +197,33 @@ public class ClientServiceTest {
     public void testarSeOMetodoFindByIdRetornaErro() {
         long idNaoExistente = 67890L;
 
-        Mockito.doThrow(ResourceNotFoundException.class).when(repositorio).findById(idNaoExistente);
+        Mockito.doThrow(ResourceNotFoundException.class).when(repositorio).findDTOById(idNaoExistente);
 
         Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.findById(idNaoExistente));
 
-        Mockito.verify(repositorio, times(1)).findById(idNaoExistente);
+        Mockito.verify(repositorio, times(1)).findDTOById(idNaoExistente);
+    }
+
+    //    findById deveria
+    //    não devolver ao cache um cliente lido antes de uma escrita que terminou durante a leitura
+    @DisplayName("Testa se o findById só guarda no cache quando nenhuma escrita terminou durante a leitura")
+    @Test
+    public void testarSeFindByIdNaoGuardaNoCacheLeituraConcorrenteComEscrita() {
+        long idExistente = 1L;
+        Cache cache = Mockito.mock(Cache.class);
+        Mockito.when(gerenciadorDeCache.getCache(CacheConfig.CLIENTS)).thenReturn(cache);
+        ClientDTO lido = new ClientDTO(new Client(idExistente, "Felipe Guimarães", "123123123", 500.0,
+                Instant.parse("1940-02-23T07:00:00Z"), 1));
+        Mockito.when(repositorio.findDTOById(idExistente)).thenReturn(Optional.of(lido));
+
+        // um update terminou (e fez o evict) entre o início e o fim da leitura
+        Mockito.when(contadorAlteracoes.changes()).thenReturn(4L, 5L);
+        assertThat(servico.findById(idExistente)).isSameAs(lido);
+        Mockito.verify(cache, Mockito.never()).put(Mockito.any(), Mockito.any());
+
+        Mockito.when(contadorAlteracoes.changes()).thenReturn(5L, 5L);
+        servico.findById(idExistente);
+        Mockito.verify(cache, times(1)).put(idExistente, lido);
     }
 
 
@@ -205,5 +276,20 @@ public class ClientServiceTest {
         Mockito.verify(repositorio , times(1)).getOne(id);
     }
 
+    //    incomeStats deveria
+    //    recusar a largura que gera mais faixas com clientes que o limite, com a mesma consulta
+    @DisplayName("Testa se incomeStats pede uma faixa a mais que o limite e recusa quando ela vem")
+    @Test
+    public void testarSeEstatisticasRecusamFaixasAlemDoLimite() {
+        ReflectionTestUtils.setField(servico, "incomeStatsMaxBuckets", 2);
+        List<Object[]> faixas = List.of(new Object[] { 0.0, 1L, 10.0, 10.0, 10.0 },
+                new Object[] { 1.0, 1L, 20.0, 20.0, 20.0 }, new Object[] { 2.0, 1L, 30.0, 30.0, 30.0 });
+        Mockito.when(repositorio.incomeHistogram(null, null, null, 10.0, 3)).thenReturn(faixas);
+
+        Assertions.assertThrows(InvalidParameterException.class, () -> servico.incomeStats(null, null, null, 10.0));
 
+        Mockito.when(repositorio.incomeHistogram(null, null, null, 10.0, 3)).thenReturn(faixas.subList(0, 2));
+        assertThat(servico.incomeStats(null, null, null, 10.0).getBuckets()).hasSize(2);
+        Mockito.verify(repositorio, times(2)).incomeHistogram(null, null, null, 10.0, 3);
+    }
 }
@@ -0,0 +1,89 @@
+package com.iftm.client.service;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.services.ClientSnapshot;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ClientSnapshotTest {
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    @DisplayName("Testa se a cópia em arquivo devolve os clientes por id, inclusive campos nulos e acentos")
+    public void testarBuscaPorIdNaCopia() throws IOException {
+        Path arquivo = pasta.resolve("clientes.bin");
+        try (ClientSnapshot.Writer writer = new ClientSnapshot.Writer(arquivo, 11, 18)) {
+            writer.add(new ClientDTO(3L, "Conceição Evaristo", "10619244881", 1500.0,
+                    Instant.parse("2020-07-13T20:50:00.123456789Z"), 2, 4L));
+            writer.add(new ClientDTO(7L, null, null, null, null, null, null));
+            for (long id = 10; id < 5000; id++) {
+                writer.add(new ClientDTO(id, "Cliente " + id, String.format("%011d", id), (double) id,
+                        Instant.ofEpochSecond(id), (int) (id % 4), 0L));
+            }
+            writer.finish(42);
+        }
+
+        ClientSnapshot copia = ClientSnapshot.open(arquivo);
+
+        assertThat(copia.getCount()).isEqualTo(4992);
+        assertThat(copia.getChanges()).isEqualTo(42);
+        ClientDTO cliente = copia.findById(3L).orElseThrow();
+        assertThat(cliente).usingRecursiveComparison().isEqualTo(new ClientDTO(3L, "Conceição Evaristo",
+                "10619244881", 1500.0, Instant.parse("2020-07-13T20:50:00.123456789Z"), 2, 4L));
+        assertThat(copia.findById(7L).orElseThrow()).usingRecursiveComparison()
+                .isEqualTo(new ClientDTO(7L, null, null, null, null, null, null));
+        assertThat(copia.findById(4999L).orElseThrow().getName()).isEqualTo("Cliente 4999");
+        assertThat(copia.findById(5L)).isEmpty();
+        assertThat(copia.findById(5000L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Testa se a varredura da cópia aplica os filtros de salário e de trecho do cpf em ordem de id")
+    public void testarVarreduraComFiltros() throws IOException {
+        Path arquivo = pasta.resolve("clientes.bin");
+        try (ClientSnapshot.Writer writer = new ClientSnapshot.Writer(arquivo, 11, 10)) {
+            writer.add(new ClientDTO(1L, "Ana", "10619244881", 1500.0, null, 0, 0L));
+            writer.add(new ClientDTO(2L, "Bruno", "10419344882", 5000.0, null, 0, 0L));
+            writer.add(new ClientDTO(3L, "Carla", "10219344681", null, null, 0, 0L));
+            writer.add(new ClientDTO(4L, "Davi", "10219344681", 7000.0, null, 0, 0L));
+            writer.finish(0);
+        }
+        ClientSnapshot copia = ClientSnapshot.open(arquivo);
+
+        assertThat(ids(copia, null, null)).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(ids(copia, 1500.0, null)).containsExactly(2L, 4L);
+        assertThat(ids(copia, null, "19344")).containsExactly(2L, 3L, 4L);
+        assertThat(ids(copia, 6000.0, "19344")).containsExactly(4L);
+        assertThat(ids(copia, null, "99999")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Testa se a gravação recusa ids fora de ordem e textos maiores que a largura do registro")
+    public void testarGravacaoRecusaRegistrosInvalidos() throws IOException {
+        try (ClientSnapshot.Writer writer = new ClientSnapshot.Writer(pasta.resolve("clientes.bin"), 11, 5)) {
+            writer.add(new ClientDTO(2L, "Ana", "10619244881", null, null, null, null));
+            assertThrows(IllegalStateException.class,
+                    () -> writer.add(new ClientDTO(1L, "Bia", "10619244881", null, null, null, null)));
+            assertThrows(IllegalStateException.class,
+                    () -> writer.add(new ClientDTO(3L, "Bernardo", "10619244881", null, null, null, null)));
+        }
+    }
+
+    private static List<Long> ids(ClientSnapshot copia, Double salario, String cpf) {
+        List<Long> ids = new ArrayList<>();
+        copia.forEach(salario, cpf, dto -> ids.add(dto.getId()));
+        return ids;
+    }
+}
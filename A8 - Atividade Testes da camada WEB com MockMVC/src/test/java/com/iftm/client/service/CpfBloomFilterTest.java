@@ -0,0 +1,51 @@
+package com.iftm.client.service;
+
+import com.iftm.client.services.CpfBloomFilter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CpfBloomFilterTest {
+
+    @Test
+    @DisplayName("Testa se o filtro cresce sem falsos negativos e com falsos positivos dentro da taxa")
+    public void testarSemFalsosNegativosEComTaxaDeFalsoPositivo() {
+        CpfBloomFilter filtro = new CpfBloomFilter(1000, 0.01);
+        for (long i = 0; i < 20000; i++) {
+            filtro.add(cpf(i));
+        }
+
+        assertThat(filtro.getStages()).isGreaterThan(1);
+        for (long i = 0; i < 20000; i++) {
+            assertThat(filtro.mightContain(cpf(i))).isTrue();
+        }
+        int falsosPositivos = 0;
+        for (long i = 20000; i < 120000; i++) {
+            if (filtro.mightContain(cpf(i))) {
+                falsosPositivos++;
+            }
+        }
+        // a soma dos estágios fica abaixo de 2 * 0.01
+        assertThat(falsosPositivos / 100000.0).isLessThan(0.02);
+        assertThat(filtro.getEstimatedFalsePositiveRate()).isLessThan(0.02);
+        assertThat(filtro.getEntries()).isBetween(19000L, 20000L);
+        assertThat(filtro.getMemoryBytes()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Testa se um CPF repetido não ocupa espaço de novo")
+    public void testarCpfRepetidoNaoContaDuasVezes() {
+        CpfBloomFilter filtro = new CpfBloomFilter(10, 0.01);
+        filtro.add("10204374161");
+        filtro.add("10204374161");
+
+        assertThat(filtro.getEntries()).isEqualTo(1);
+        assertThat(filtro.mightContain("10204374161")).isTrue();
+    }
+
+    private static String cpf(long i) {
+        return String.format("%011d", i * 7919);
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.iftm.client.service;
+
+import com.iftm.client.services.IncomeIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncomeIndexTest {
+
+    @Test
+    @DisplayName("Testa se o índice de salários responde faixas e páginas como um ORDER BY income, id")
+    public void testarFaixasEPaginasNaOrdemDeSalarioEId() {
+        IncomeIndex indice = new IncomeIndex();
+        List<double[]> pares = new ArrayList<>();
+        Random random = new Random(7);
+        for (long id = 1; id <= 3000; id++) {
+            double salario = 500 + random.nextInt(40) * 250;
+            pares.add(new double[] { salario, id });
+            indice.add(salario, id);
+        }
+        for (int i = 0; i < 1000; i++) {
+            double[] par = pares.remove(random.nextInt(pares.size()));
+            indice.remove(par[0], (long) par[1]);
+        }
+        pares.sort(Comparator.<double[]>comparingDouble(par -> par[0]).thenComparingDouble(par -> par[1]));
+
+        assertThat(indice.size()).isEqualTo(pares.size());
+        int de = indice.lowerBound(2000);
+        int ate = indice.upperBound(4000);
+        List<Long> esperado = new ArrayList<>();
+        pares.stream().filter(par -> par[0] >= 2000 && par[0] <= 4000).forEach(par -> esperado.add((long) par[1]));
+        assertThat(ate - de).isEqualTo(esperado.size());
+        assertThat(indice.ids(de, ate, true, 10, 25)).containsExactly(ids(esperado.subList(10, 35)));
+        List<Long> invertido = new ArrayList<>(esperado);
+        Collections.reverse(invertido);
+        assertThat(indice.ids(de, ate, false, 0, 5)).containsExactly(ids(invertido.subList(0, 5)));
+        assertThat(indice.ids(de, ate, true, esperado.size() - 2, 10)).hasSize(2);
+        assertThat(indice.ids(de, ate, true, esperado.size() + 5, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Testa se a carga em ordem, pares repetidos e remoção de par inexistente mantêm o índice")
+    public void testarCargaEmOrdemEOperacoesRepetidas() {
+        IncomeIndex indice = new IncomeIndex(1);
+        indice.append(1000.0, 2);
+        indice.append(1000.0, 5);
+        indice.append(2500.0, 1);
+        indice.append(1000.0, 3); // fora de ordem: vai para a posição certa
+        indice.add(1000.0, 5);
+        indice.remove(7000.0, 9);
+
+        assertThat(indice.size()).isEqualTo(4);
+        assertThat(indice.ids(0, indice.size(), true, 0, 10)).containsExactly(2, 3, 5, 1);
+        assertThat(indice.upperBound(1000.0)).isEqualTo(3);
+        assertThat(indice.lowerBound(1000.01)).isEqualTo(3);
+        assertThat(indice.upperBound(9999.0)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Testa se uma página depois do fim devolve vazio, mesmo com o vetor cheio e offset enorme")
+    public void testarPaginaDepoisDoFimDevolveVazio() {
+        IncomeIndex indice = new IncomeIndex(12);
+        for (long id = 1; id <= 12; id++) {
+            indice.append(1000.0 + id, id);
+        }
+
+        assertThat(indice.ids(0, indice.size(), true, 24, 12)).isEmpty();
+        assertThat(indice.ids(0, indice.size(), false, 24, 12)).isEmpty();
+        assertThat(indice.ids(0, indice.size(), true, 12, 12)).isEmpty();
+        assertThat(indice.ids(0, indice.size(), true, Long.MAX_VALUE - 1, 12)).isEmpty();
+        assertThat(indice.ids(0, indice.size(), true, 10, 12)).containsExactly(11, 12);
+    }
+
+    private static long[] ids(List<Long> lista) {
+        return lista.stream().mapToLong(Long::longValue).toArray();
+    }
+}
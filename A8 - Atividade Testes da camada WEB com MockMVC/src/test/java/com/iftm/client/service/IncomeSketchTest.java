@@ -0,0 +1,56 @@
+package com.iftm.client.service;
+
+import com.iftm.client.services.IncomeSketch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class IncomeSketchTest {
+
+    @Test
+    @DisplayName("Testa se os quantis do sketch ficam dentro do erro relativo, inclusive após remoções")
+    public void testarQuantisDentroDoErroRelativo() {
+        IncomeSketch sketch = new IncomeSketch(0.01);
+        Random random = new Random(42);
+        List<Double> salarios = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            double salario = Math.exp(random.nextGaussian() + 8);
+            salarios.add(salario);
+            sketch.add(salario);
+        }
+        for (int i = 0; i < 5000; i++) {
+            sketch.remove(salarios.remove(salarios.size() - 1));
+        }
+        Collections.sort(salarios);
+
+        assertThat(sketch.getCount()).isEqualTo(salarios.size());
+        for (double q : new double[] { 0.0, 0.5, 0.9, 0.99, 0.999, 1.0 }) {
+            double exato = salarios.get((int) Math.floor(q * (salarios.size() - 1)));
+            assertThat(Math.abs(sketch.quantile(q) - exato)).isLessThanOrEqualTo(exato * 0.01);
+        }
+    }
+
+    @Test
+    @DisplayName("Testa se o sketch vazio não tem quantis e se valores zero são respondidos como zero")
+    public void testarSketchVazioEValoresZero() {
+        IncomeSketch sketch = new IncomeSketch(0.01);
+        assertThat(sketch.quantile(0.5)).isNull();
+
+        sketch.add(0.0);
+        sketch.add(0.0);
+        sketch.add(1500.0);
+        assertThat(sketch.quantile(0.5)).isEqualTo(0.0);
+
+        sketch.remove(0.0);
+        sketch.remove(0.0);
+        assertThat(sketch.quantile(0.5)).isCloseTo(1500.0, offset(15.0));
+        assertThat(sketch.getSum()).isEqualTo(1500.0);
+    }
+}
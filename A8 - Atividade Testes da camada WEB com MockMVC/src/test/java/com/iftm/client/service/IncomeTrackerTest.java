@@ -0,0 +1,60 @@
+package com.iftm.client.service;
+
+import com.iftm.client.dto.IncomeQuantilesDTO;
+import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.IncomeTracker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncomeTrackerTest {
+
+    @Test
+    @DisplayName("Testa se o rebuild lê a tabela sem travar leituras e eventos e reaplica os eventos sem contar em dobro")
+    public void testarEventosDuranteORebuild() throws Exception {
+        ClientRepository repository = Mockito.mock(ClientRepository.class);
+        IncomeTracker salarios = new IncomeTracker(repository, null,
+                Mockito.mock(PlatformTransactionManager.class), 0.01);
+        Mockito.when(repository.streamIncomesWithIds())
+                .thenReturn(Stream.of(new Object[] { 100.0, 1L }, new Object[] { 200.0, 2L }));
+        salarios.rebuild();
+
+        CountDownLatch leituraIniciada = new CountDownLatch(1);
+        CountDownLatch eventosAplicados = new CountDownLatch(1);
+        // a segunda leitura vê o cliente 2 ainda com 200, o 3 já inserido e o 1 ainda existente
+        Mockito.when(repository.streamIncomesWithIds()).thenAnswer(invocacao -> {
+            leituraIniciada.countDown();
+            assertThat(eventosAplicados.await(10, TimeUnit.SECONDS)).isTrue();
+            return Stream.of(new Object[] { 100.0, 1L }, new Object[] { 200.0, 2L }, new Object[] { 300.0, 3L });
+        });
+        CompletableFuture<IncomeQuantilesDTO> rebuild = CompletableFuture.supplyAsync(salarios::rebuild);
+        assertThat(leituraIniciada.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // nada disso pode esperar a leitura terminar
+        CompletableFuture.runAsync(() -> {
+            salarios.changed(2L, 250.0);
+            salarios.changed(3L, 300.0);
+            salarios.removed(Map.of(1L, 100.0, 4L, 400.0));
+            assertThat(salarios.top(10)).containsExactly(3L, 2L);
+        }).get(10, TimeUnit.SECONDS);
+        eventosAplicados.countDown();
+
+        IncomeQuantilesDTO quantis = rebuild.get(10, TimeUnit.SECONDS);
+        assertThat(quantis.getCount()).isEqualTo(2L);
+        assertThat(quantis.getSum()).isEqualTo(550.0);
+        assertThat(salarios.top(10)).containsExactly(3L, 2L);
+        assertThat(salarios.between(250.0, 250.0, true, 0, 10).getIds()).containsExactly(2L);
+        assertThat(salarios.quantiles(List.of(0.5)).getCount()).isEqualTo(2L);
+    }
+
+}
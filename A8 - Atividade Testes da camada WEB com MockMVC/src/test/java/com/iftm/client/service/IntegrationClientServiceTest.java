@@ -1,33 +1,77 @@
 package com.iftm.client.service;
 
+import com.iftm.client.config.CacheConfig;
+import com.iftm.client.dto.ClientBatchDTO;
+import com.iftm.client.dto.ClientBulkDeleteDTO;
 import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.querycount.QueryCountConfig;
+import com.iftm.client.querycount.QueryCountExtension;
+import com.iftm.client.querycount.QueryCounts;
 import com.iftm.client.entities.Client;
+import com.iftm.client.dto.IncomeQuantilesDTO;
+import com.iftm.client.repositories.ClientChangesRepository;
+import com.iftm.client.repositories.ClientRepository;
 import com.iftm.client.services.ClientService;
+import com.iftm.client.services.ClientSort;
+import com.iftm.client.services.CpfTracker;
 import com.iftm.client.services.exceptions.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
 
 @Transactional
 @SpringBootTest
+@Import(QueryCountConfig.class)
+@ExtendWith(QueryCountExtension.class)
 public class IntegrationClientServiceTest {
     @Autowired
     private ClientService servico;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ClientRepository repositorio;
+
+    @Autowired
+    private CpfTracker cpfTracker;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ClientChangesRepository repositorioDeAlteracoes;
+
 
     @DisplayName("Testar se o método deleteById apaga um registro e não retorna outras informações")
     @Test
@@ -156,4 +200,352 @@ public class IntegrationClientServiceTest {
         Long id = 1398L;
         Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.update(id, new ClientDTO()));
     }
+
+    //    insertAll deveria
+    //    ◦ gravar todos os clientes e retornar os ids gerados na mesma ordem
+    @DisplayName("Testa se o insertAll grava os clientes e retorna os ids gerados")
+    @Test
+    public void testarSeOMetodoInsertAllRetornaIdsGerados() {
+        List<ClientDTO> clientes = new ArrayList<>(Arrays.asList(
+                new ClientDTO(null, "Lote Um", "99900000001", 100.0, Instant.parse("1990-01-01T00:00:00Z"), 0),
+                new ClientDTO(null, "Lote Dois", "99900000002", 200.0, Instant.parse("1991-01-01T00:00:00Z"), 1),
+                new ClientDTO(50L, "Lote Tres", "99900000003", 300.0, Instant.parse("1992-01-01T00:00:00Z"), 2)
+        ));
+
+        List<Long> ids = servico.insertAll(clientes);
+
+        assertThat(ids).hasSize(3).doesNotHaveDuplicates().doesNotContainNull();
+        assertThat(servico.findById(ids.get(0)).getName()).isEqualTo("Lote Um");
+        assertThat(servico.findById(ids.get(2)).getCpf()).isEqualTo("99900000003");
+    }
+
+    //    findById deveria
+    //    ◦ guardar o cliente no cache e o update deveria retirá-lo do cache
+    //    (sem transação no teste, pois o cache só é alterado após o commit)
+    @DisplayName("Testa se o findById usa o cache e o update invalida a entrada")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testarSeFindByIdUsaCacheEUpdateInvalida() {
+        long idExistente = 11L;
+        Cache cache = cacheManager.getCache(CacheConfig.CLIENTS);
+        cache.evict(idExistente);
+
+        ClientDTO primeiraBusca = servico.findById(idExistente);
+        ClientDTO segundaBusca = servico.findById(idExistente);
+
+        assertThat(segundaBusca).isSameAs(primeiraBusca);
+        assertThat(cache.get(idExistente)).isNotNull();
+
+        //grava os mesmos dados do import.sql para não alterar o cenário dos outros testes
+        servico.update(idExistente, primeiraBusca);
+
+        assertThat(cache.get(idExistente)).isNull();
+    }
+
+    //    contagem de comandos SQL (datasource-proxy, ver QueryCountConfig)
+    @DisplayName("Testa se o findById sem cache executa exatamente 1 consulta")
+    @Test
+    public void testarSeFindByIdExecutaUmaConsulta() {
+        long idExistente = 7L;
+        cacheManager.getCache(CacheConfig.CLIENTS).evict(idExistente);
+        QueryCounts.reset();
+
+        servico.findById(idExistente);
+
+        assertThat(QueryCounts.total()).isEqualTo(1);
+        assertThat(QueryCounts.selects()).isEqualTo(1);
+    }
+
+    @DisplayName("Testa se a busca por um CPF inexistente é respondida pelo filtro de Bloom, sem consulta")
+    @Test
+    public void testarSeBuscaPorCpfInexistenteNaoConsultaOBanco() {
+        cpfTracker.rebuild();
+        QueryCounts.reset();
+
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.findByCpf("99999999999"));
+        servico.deleteByCpf("99999999999");
+
+        assertThat(QueryCounts.total()).isEqualTo(0);
+
+        List<ClientDTO> encontrados = servico.findByCpf("10419244771");
+
+        assertThat(encontrados).extracting(ClientDTO::getName).containsExactly("Carolina Maria de Jesus");
+        assertThat(QueryCounts.total()).isEqualTo(1);
+    }
+
+    //    o filtro de CPFs deveria
+    //    ◦ conhecer o CPF novo logo após insert, update e patch
+    @DisplayName("Testa se o filtro de CPFs acompanha insert, update e patch")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testarSeFiltroDeCpfAcompanhaAlteracoes() {
+        ClientDTO inserido = servico.insert(new ClientDTO(null, "Filtro", "33300000003", 1000.0,
+                Instant.parse("1996-12-23T07:00:00Z"), 0));
+        try {
+            assertThat(servico.findByCpf("33300000003")).extracting(ClientDTO::getId).containsExactly(inserido.getId());
+
+            inserido.setCpf("33300000004");
+            servico.update(inserido.getId(), inserido);
+            assertThat(servico.findByCpf("33300000004")).extracting(ClientDTO::getId).containsExactly(inserido.getId());
+
+            ClientDTO parcial = new ClientDTO();
+            parcial.setCpf("33300000005");
+            servico.patch(inserido.getId(), parcial);
+            assertThat(servico.findByCpf("33300000005")).extracting(ClientDTO::getId).containsExactly(inserido.getId());
+            Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.findByCpf("33300000004"));
+        } finally {
+            servico.delete(inserido.getId());
+        }
+    }
+
+    //    o filtro de CPFs não deveria perder o CPF de uma transação aberta
+    //    antes de uma recarga e confirmada depois da leitura da tabela
+    @DisplayName("Testa se a recarga do filtro de CPFs em paralelo com inserts não perde CPFs")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testarSeRecargaDoFiltroDeCpfEmParaleloNaoPerdeInserts() throws Exception {
+        List<Long> inseridos = new ArrayList<>();
+        ExecutorService recarga = Executors.newSingleThreadExecutor();
+        try {
+            // o INSERT (e o add no filtro) acontece antes da recarga, o commit depois dela
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                inseridos.add(servico.insert(new ClientDTO(null, "Recarga", "33300000007", 1000.0,
+                        Instant.parse("1996-12-23T07:00:00Z"), 0)).getId());
+                repositorio.flush();
+                try {
+                    recarga.submit(cpfTracker::rebuild).get(30, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertThat(cpfTracker.mightContain("33300000007")).isTrue();
+
+            // recargas seguidas enquanto outros clientes são inseridos
+            Future<?> recargas = recarga.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    cpfTracker.rebuild();
+                }
+            });
+            for (int i = 0; i < 20; i++) {
+                inseridos.add(servico.insert(new ClientDTO(null, "Recarga", "3330000010" + (char) ('a' + i), 1000.0,
+                        Instant.parse("1996-12-23T07:00:00Z"), 0)).getId());
+            }
+            recargas.get(30, TimeUnit.SECONDS);
+            for (int i = 0; i < 20; i++) {
+                assertThat(cpfTracker.mightContain("3330000010" + (char) ('a' + i))).isTrue();
+            }
+        } finally {
+            recarga.shutdownNow();
+            inseridos.forEach(servico::delete);
+        }
+    }
+
+    //    só um CPF que de fato saiu da tabela deveria contar para a recarga do filtro
+    @DisplayName("Testa se patch com o mesmo CPF ou de id inexistente não conta remoção e uma troca conta uma")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testarSeSoCpfTrocadoContaComoRemovido() {
+        ClientDTO inserido = servico.insert(new ClientDTO(null, "Remocao", "33300000020", 1000.0,
+                Instant.parse("1996-12-23T07:00:00Z"), 0));
+        try {
+            long antes = repositorioDeAlteracoes.sumCpfRemovals();
+            ClientDTO parcial = new ClientDTO();
+            parcial.setCpf("33300000020");
+            servico.patch(inserido.getId(), parcial);
+            Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.patch(999999L, parcial));
+            assertThat(repositorioDeAlteracoes.sumCpfRemovals()).isEqualTo(antes);
+
+            parcial.setCpf("33300000021");
+            servico.patch(inserido.getId(), parcial);
+            assertThat(repositorioDeAlteracoes.sumCpfRemovals()).isEqualTo(antes + 1);
+        } finally {
+            servico.delete(inserido.getId());
+        }
+    }
+
+    //    a recarga do filtro de CPFs não deveria rodar na requisição que apagou
+    //    os clientes, e sim na verificação agendada
+    @DisplayName("Testa se a exclusão em massa só conta os CPFs removidos e deixa a recarga do filtro para o agendador")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testarSeRecargaDoFiltroDeCpfNaoRodaNaExclusao() {
+        // mais CPFs do que o filtro tem hoje: passa de rebuild-after-removals
+        int quantidade = (int) meterRegistry.get("client.cpf.filter.entries").gauge().value() + 10;
+        List<ClientDTO> clientes = new ArrayList<>();
+        List<String> cpfs = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            String cpf = String.format("555%08d", i);
+            cpfs.add(cpf);
+            clientes.add(new ClientDTO(null, "Recarga", cpf, 1000.0, Instant.parse("1996-12-23T07:00:00Z"), 0));
+        }
+        servico.insertAll(clientes);
+
+        QueryCounts.reset();
+        servico.deleteAll(new ClientBulkDeleteDTO(List.of(), cpfs));
+
+        // um SELECT dos salários e um DELETE por bloco, sem ler os CPFs da tabela
+        int blocos = (quantidade + 499) / 500;
+        assertThat(QueryCounts.selects()).isEqualTo(blocos);
+        assertThat(QueryCounts.current().getDelete()).isEqualTo(blocos);
+
+        cpfTracker.rebuildIfWorn();
+        assertThat(cpfs.stream().filter(cpfTracker::mightContain).count()).isLessThan(quantidade / 10);
+    }
+
+    @DisplayName("Testa se a busca em lote por ids faz 1 consulta e depois responde pelo cache")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testarSeBuscaEmLoteExecutaUmaConsultaEUsaOCache() {
+        Cache cache = cacheManager.getCache(CacheConfig.CLIENTS);
+        cache.clear();
+        QueryCounts.reset();
+
+        ClientBatchDTO resultado = servico.findAllById(List.of(3L, 1000L, 1L, 3L));
+
+        assertThat(resultado.getClients()).extracting(ClientDTO::getId).containsExactly(3L, 1L);
+        assertThat(resultado.getMissing()).containsExactly(1000L);
+        assertThat(QueryCounts.total()).isEqualTo(1);
+
+        // sem transação o put no cache é aplicado na hora
+        cache.put(1000L, new ClientDTO(1000L, "Cache", "33300000006", 1.0, Instant.parse("1996-12-23T07:00:00Z"), 0));
+        QueryCounts.reset();
+        assertThat(servico.findAllById(List.of(1000L)).getClients()).extracting(ClientDTO::getName).containsExactly("Cache");
+        assertThat(QueryCounts.total()).isEqualTo(0);
+        cache.clear();
+    }
+
+    @DisplayName("Testa se o findAllPaged executa no máximo 2 consultas (conteúdo e total)")
+    @Test
+    public void testarSeFindAllPagedExecutaNoMaximoDuasConsultas() {
+        QueryCounts.reset();
+
+        servico.findAllPaged(PageRequest.of(0, 12));
+
+        assertThat(QueryCounts.total()).isLessThanOrEqualTo(2);
+    }
+
+    @DisplayName("Testa se o update executa só 1 select e 1 update")
+    @Test
+    public void testarSeUpdateExecutaUmSelectEUmUpdate() {
+        long idExistente = 12L;
+        ClientDTO dto = new ClientDTO(idExistente, "Jorge Amado", "10204374161", 2600.0,
+                Instant.parse("1918-09-23T07:00:00Z"), 0);
+        QueryCounts.reset();
+
+        servico.update(idExistente, dto);
+
+        assertThat(QueryCounts.selects()).isEqualTo(1);
+        assertThat(QueryCounts.current().getUpdate()).isEqualTo(1);
+        assertThat(QueryCounts.total()).isEqualTo(2);
+    }
+
+    @DisplayName("Testa se a página de salário maior que x ordenada por salário sai do índice com 1 consulta, sem COUNT")
+    @Test
+    public void testarSeFindByIncomeGreaterThanPorSalarioExecutaUmaConsulta() {
+        servico.rebuildIncomeQuantiles();
+        PageRequest pageRequest = ClientSort.pageRequest(1, 3, "DESC", "income");
+        QueryCounts.reset();
+
+        Page<ClientDTO> pagina = servico.findByIncomeGreaterThan(pageRequest, 2000.0);
+
+        assertThat(QueryCounts.total()).isEqualTo(1);
+        Page<ClientDTO> banco = repositorio.findDTOByIncomeGreaterThan(2000.0, pageRequest);
+        assertThat(pagina.getTotalElements()).isEqualTo(banco.getTotalElements());
+        assertThat(pagina.getContent()).extracting(ClientDTO::getId)
+                .containsExactlyElementsOf(banco.map(ClientDTO::getId).getContent());
+    }
+
+    //    o índice de salários deveria
+    //    ◦ acompanhar insert, update e delete após o commit
+    @DisplayName("Testa se os maiores salários acompanham insert, update e delete")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testarSeMaioresSalariosAcompanhamAlteracoes() {
+        ClientDTO inserido = servico.insert(new ClientDTO(null, "Topo", "33300000002", 8765432.0,
+                Instant.parse("1996-12-23T07:00:00Z"), 0));
+        assertThat(servico.findTopEarners(1)).extracting(ClientDTO::getId).containsExactly(inserido.getId());
+
+        inserido.setIncome(0.5);
+        servico.update(inserido.getId(), inserido);
+        assertThat(servico.findTopEarners(100)).extracting(ClientDTO::getId).endsWith(inserido.getId());
+
+        servico.delete(inserido.getId());
+        assertThat(servico.findTopEarners(100)).extracting(ClientDTO::getId).doesNotContain(inserido.getId());
+    }
+
+    //    o índice de salários deveria
+    //    ◦ acompanhar patch, exclusão por cpf e em lote sem recarregar a tabela
+    @DisplayName("Testa se patch e exclusões em massa atualizam os maiores salários sem recarga")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testarSeMaioresSalariosAcompanhamAlteracoesEmMassa() {
+        Instant nascimento = Instant.parse("1996-12-23T07:00:00Z");
+        ClientDTO a = servico.insert(new ClientDTO(null, "Massa A", "33300000011", 7654323.0, nascimento, 0));
+        ClientDTO b = servico.insert(new ClientDTO(null, "Massa B", "33300000012", 7654322.0, nascimento, 0));
+        ClientDTO c = servico.insert(new ClientDTO(null, "Massa C", "33300000013", 7654321.0, nascimento, 0));
+        try {
+            long quantidade = servico.incomeQuantiles(List.of(0.5)).getCount();
+            assertThat(servico.findTopEarners(3)).extracting(ClientDTO::getId)
+                    .containsExactly(a.getId(), b.getId(), c.getId());
+
+            ClientDTO parcial = new ClientDTO();
+            parcial.setIncome(0.25);
+            servico.patch(a.getId(), parcial);
+            QueryCounts.reset();
+            assertThat(servico.findTopEarners(2)).extracting(ClientDTO::getId).containsExactly(b.getId(), c.getId());
+            assertThat(servico.findTopEarners(100)).extracting(ClientDTO::getId).endsWith(a.getId());
+            // só a leitura dos DTOs, sem reler os salários da tabela
+            assertThat(QueryCounts.total()).isEqualTo(2);
+
+            servico.deleteByCpf("33300000012");
+            servico.deleteAll(new ClientBulkDeleteDTO(List.of(c.getId()), List.of()));
+            QueryCounts.reset();
+            assertThat(servico.findTopEarners(100)).extracting(ClientDTO::getId).doesNotContain(b.getId(), c.getId());
+            assertThat(servico.incomeQuantiles(List.of(0.5)).getCount()).isEqualTo(quantidade - 2);
+            assertThat(QueryCounts.total()).isEqualTo(1);
+        } finally {
+            servico.deleteAll(new ClientBulkDeleteDTO(List.of(a.getId(), b.getId(), c.getId()), List.of()));
+        }
+    }
+
+    //    o sketch de quantis deveria
+    //    ◦ acompanhar insert, update e delete após o commit, dentro do erro relativo
+    @DisplayName("Testa se os quantis de salário acompanham insert, update e delete")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testarSeQuantisDeSalarioAcompanhamAlteracoes() {
+        List<Double> quantis = List.of(0.5, 0.9, 0.99);
+        long quantidadeInicial = servico.incomeQuantiles(quantis).getCount();
+
+        ClientDTO inserido = servico.insert(new ClientDTO(null, "Quantil", "33300000001", 987654.0,
+                Instant.parse("1996-12-23T07:00:00Z"), 0));
+        assertThat(servico.incomeQuantiles(quantis).getCount()).isEqualTo(quantidadeInicial + 1);
+
+        inserido.setIncome(55.0);
+        servico.update(inserido.getId(), inserido);
+        IncomeQuantilesDTO aposUpdate = servico.incomeQuantiles(quantis);
+        assertThat(aposUpdate.getCount()).isEqualTo(quantidadeInicial + 1);
+        assertQuantisDentroDoErro(aposUpdate);
+
+        servico.delete(inserido.getId());
+        IncomeQuantilesDTO aposDelete = servico.incomeQuantiles(quantis);
+        assertThat(aposDelete.getCount()).isEqualTo(quantidadeInicial);
+        assertQuantisDentroDoErro(aposDelete);
+    }
+
+    private void assertQuantisDentroDoErro(IncomeQuantilesDTO dto) {
+        List<Double> salarios = new ArrayList<>();
+        repositorio.findAll().forEach(client -> salarios.add(client.getIncome()));
+        salarios.sort(null);
+        assertThat(dto.getSum()).isCloseTo(salarios.stream().mapToDouble(Double::doubleValue).sum(),
+                offset(0.001));
+        assertQuantil(dto.getQuantiles().get("p50"), salarios, 0.5, dto.getRelativeAccuracy());
+        assertQuantil(dto.getQuantiles().get("p90"), salarios, 0.9, dto.getRelativeAccuracy());
+        assertQuantil(dto.getQuantiles().get("p99"), salarios, 0.99, dto.getRelativeAccuracy());
+    }
+
+    private static void assertQuantil(Double estimado, List<Double> salarios, double q, double erroRelativo) {
+        double exato = salarios.get((int) Math.floor(q * (salarios.size() - 1)));
+        assertThat(Math.abs(estimado - exato)).isLessThanOrEqualTo(exato * erroRelativo + 1e-9);
+    }
 }
@@ -0,0 +1,114 @@
+package com.iftm.client.service;
+
+import com.iftm.client.config.CacheConfig;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.querycount.QueryCountConfig;
+import com.iftm.client.querycount.QueryCounts;
+import com.iftm.client.services.ClientService;
+import com.iftm.client.services.ClientSnapshotStore;
+import com.iftm.client.services.exceptions.ResourceNotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/*
+ * Banco próprio para não misturar com os dados das outras classes de integração
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:snapshot",
+        "client.snapshot.enabled=true",
+        "client.snapshot.path=target/client-snapshot-test.bin",
+        "client.snapshot.check-interval=PT1H" })
+@Import(QueryCountConfig.class)
+public class IntegrationClientSnapshotTest {
+    @Autowired
+    private ClientService servico;
+
+    @Autowired
+    private ClientSnapshotStore copia;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @DisplayName("Testa se com a cópia atualizada o findById não executa nenhum SQL, nem para id inexistente")
+    @Test
+    public void testarFindByIdPelaCopiaSemConsultarBanco() {
+        copia.refresh();
+        limparCache();
+        QueryCounts.reset();
+
+        ClientDTO cliente = servico.findById(7L);
+        assertThrows(ResourceNotFoundException.class, () -> servico.findById(1000L));
+
+        assertThat(cliente.getName()).isEqualTo("Jose Saramago");
+        assertThat(cliente.getIncome()).isEqualTo(5000.0);
+        assertThat(QueryCounts.total()).isZero();
+    }
+
+    @DisplayName("Testa se após uma escrita as leituras voltam ao banco até a cópia ser regravada")
+    @Test
+    public void testarEscritaDesatualizaCopiaAteRegravar() {
+        copia.refresh();
+        ClientDTO inserido = servico.insert(new ClientDTO(null, "Cópia", "44400000001", 4321.0,
+                Instant.parse("1996-12-23T07:00:00Z"), 1));
+        assertThat(copia.current()).isNull();
+
+        limparCache();
+        QueryCounts.reset();
+        assertThat(servico.findById(inserido.getId()).getName()).isEqualTo("Cópia");
+        assertThat(QueryCounts.selects()).isEqualTo(1);
+
+        copia.refresh();
+        limparCache();
+        QueryCounts.reset();
+        assertThat(servico.findById(inserido.getId())).usingRecursiveComparison().isEqualTo(inserido);
+        List<ClientDTO> exportados = new ArrayList<>();
+        servico.export(4000.0, "4440", exportados::add);
+        assertThat(exportados).extracting(ClientDTO::getId).containsExactly(inserido.getId());
+        assertThat(QueryCounts.total()).isZero();
+
+        servico.delete(inserido.getId());
+        assertThrows(ResourceNotFoundException.class, () -> servico.findById(inserido.getId()));
+    }
+
+    @DisplayName("Testa se cada cópia vai para um arquivo novo e a anterior é apagada")
+    @Test
+    public void testarRegravacaoUsaArquivoNovoEApagaAnterior() throws IOException {
+        copia.refresh();
+        List<Path> antes = arquivosDaCopia();
+        copia.refresh();
+        List<Path> depois = arquivosDaCopia();
+
+        assertThat(antes).hasSize(1);
+        assertThat(depois).hasSize(1).doesNotContainAnyElementsOf(antes);
+        limparCache();
+        assertThat(servico.findById(7L).getName()).isEqualTo("Jose Saramago");
+    }
+
+    private static List<Path> arquivosDaCopia() throws IOException {
+        List<Path> arquivos = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get("target"), "client-snapshot-test-*.bin")) {
+            stream.forEach(arquivos::add);
+        }
+        return arquivos;
+    }
+
+    private void limparCache() {
+        cacheManager.getCache(CacheConfig.CLIENTS).clear();
+    }
+}
@@ -0,0 +1,46 @@
+package com.iftm.client.service;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.services.ClientService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Banco próprio para não misturar com os dados das outras classes de integração
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:parallel",
+        "client.page.parallel-count=true" })
+public class IntegrationParallelPageQueriesTest {
+    @Autowired
+    private ClientService servico;
+
+    @Autowired
+    private MeterRegistry metricas;
+
+    @DisplayName("Testa se com o COUNT em paralelo as páginas trazem o mesmo conteúdo e total")
+    @Test
+    public void testarPaginasComCountEmParalelo() {
+        Page<ClientDTO> porSalario = servico.findByIncomeGreaterThan(PageRequest.of(1, 2, Sort.by("name")), 2000.0);
+        Page<ClientDTO> porCpf = servico.findByCpfLike(PageRequest.of(0, 2, Sort.by("id")), "%106%");
+
+        assertThat(porSalario.getTotalElements()).isEqualTo(9);
+        assertThat(porSalario.getContent()).extracting(ClientDTO::getName)
+                .containsExactly("Djamila Ribeiro", "Gilberto Gil");
+        assertThat(porCpf.getTotalElements()).isEqualTo(4);
+        assertThat(porCpf.getContent()).extracting(ClientDTO::getId).containsExactly(1L, 2L);
+        assertThat(metricas.get("client.page.latency").tag("query", "findByIncomeGreaterThan")
+                .tag("mode", "parallel").timer().count()).isEqualTo(1);
+        assertThat(metricas.get("client.page.query").tag("query", "findByCpfLike")
+                .tag("part", "count").timer().count()).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.iftm.client.service;
+
+import com.iftm.client.services.ParallelPageQueries;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelPageQueriesTest {
+
+    private final SimpleMeterRegistry metricas = new SimpleMeterRegistry();
+    private final ParallelPageQueries paginas = new ParallelPageQueries(null,
+            Mockito.mock(PlatformTransactionManager.class), metricas, true, 1, 0, Duration.ofMillis(500));
+
+    @AfterEach
+    public void encerrar() {
+        paginas.shutdown();
+    }
+
+    @Test
+    @DisplayName("Testa se o conteúdo e o COUNT rodam ao mesmo tempo e a economia é medida")
+    public void testarConteudoECountEmParalelo() {
+        PageRequest pagina = PageRequest.of(0, 2);
+        String[] threadDoCount = new String[1];
+        // cada consulta só segue quando a outra também começou: em sequência, a primeira não encontraria a segunda
+        CountDownLatch ambas = new CountDownLatch(2);
+        boolean[] encontraram = new boolean[2];
+
+        Page<String> resultado = paginas.page("teste", pagina,
+                () -> {
+                    ambas.countDown();
+                    encontraram[0] = aguardar(ambas);
+                    dormir(300);
+                    return new SliceImpl<>(List.of("a", "b"), pagina, true);
+                },
+                () -> {
+                    threadDoCount[0] = Thread.currentThread().getName();
+                    ambas.countDown();
+                    encontraram[1] = aguardar(ambas);
+                    dormir(300);
+                    return 10;
+                });
+
+        assertThat(resultado.getContent()).containsExactly("a", "b");
+        assertThat(resultado.getTotalElements()).isEqualTo(10);
+        assertThat(threadDoCount[0]).startsWith("page-count-");
+        assertThat(encontraram).containsExactly(true, true);
+        assertThat(metricas.get("client.page.latency").tag("mode", "parallel").timer().count()).isEqualTo(1);
+        assertThat(metricas.get("client.page.saved").tag("query", "teste").timer().totalTime(TimeUnit.MILLISECONDS))
+                .isGreaterThan(200);
+    }
+
+    @Test
+    @DisplayName("Testa se sem vaga para o COUNT a página é montada em sequência")
+    public void testarSemThreadLivreMontaEmSequencia() throws Exception {
+        PageRequest pagina = PageRequest.of(1, 2);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Page<String>> ocupada = CompletableFuture.supplyAsync(() -> paginas.page("teste", pagina,
+                () -> new SliceImpl<>(List.of("c"), pagina, false),
+                () -> {
+                    aguardar(liberar);
+                    return 3;
+                }));
+        while (metricas.find("client.page.query").tag("part", "content").timer() == null) {
+            dormir(10);
+        }
+        String[] threadDoCount = new String[1];
+
+        Page<String> resultado = paginas.page("teste", pagina,
+                () -> new SliceImpl<>(List.of("c"), pagina, false),
+                () -> {
+                    threadDoCount[0] = Thread.currentThread().getName();
+                    return 3;
+                });
+        liberar.countDown();
+
+        assertThat(resultado.getTotalElements()).isEqualTo(3);
+        assertThat(threadDoCount[0]).isEqualTo(Thread.currentThread().getName());
+        assertThat(metricas.get("client.page.fallbacks").tag("reason", "no_slot").counter().count()).isEqualTo(1);
+        assertThat(ocupada.get(5, TimeUnit.SECONDS).getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Testa se um COUNT que passa do tempo limite é refeito na thread da requisição e devolve a vaga")
+    public void testarCountLentoRefeitoNaRequisicao() {
+        PageRequest pagina = PageRequest.of(1, 2);
+        CountDownLatch liberar = new CountDownLatch(1);
+        String principal = Thread.currentThread().getName();
+
+        Page<String> resultado = paginas.page("teste", pagina,
+                () -> new SliceImpl<>(List.of("c"), pagina, false),
+                () -> {
+                    if (!Thread.currentThread().getName().equals(principal)) {
+                        aguardar(liberar);
+                    }
+                    return 3;
+                });
+
+        assertThat(resultado.getTotalElements()).isEqualTo(3);
+        assertThat(metricas.get("client.page.fallbacks").tag("reason", "timeout").counter().count()).isEqualTo(1);
+        liberar.countDown();
+
+        // o COUNT cancelado devolve a vaga ao terminar e o seguinte volta ao pool
+        String[] threadDoCount = new String[1];
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        do {
+            paginas.page("teste", pagina,
+                    () -> new SliceImpl<>(List.of("c"), pagina, false),
+                    () -> {
+                        threadDoCount[0] = Thread.currentThread().getName();
+                        return 3;
+                    });
+        } while (!threadDoCount[0].startsWith("page-count-") && System.nanoTime() < limite);
+        assertThat(threadDoCount[0]).startsWith("page-count-");
+    }
+
+    private static void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean aguardar(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+}